@@ -0,0 +1,46 @@
+package com.busreservation.bus_reservation.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-request cost of authenticating a bearer token. The role is read from the token;
+ * the in-memory user lookup only serves tokens without one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtFilterBenchmark {
+
+    private JwtAuthFilter filter;
+    private String authorization;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JwtService jwtService = new JwtService("benchmark-secret-key-that-is-long-enough-for-hs256", 86_400_000L);
+
+        UserDetails user = User.withUsername("rider@example.com").password("{noop}x").roles("USER").build();
+        filter = new JwtAuthFilter(jwtService, username -> user);
+        authorization = "Bearer " + jwtService.generateToken(user.getUsername(), Map.of("uid", 1L, "role", "USER"));
+    }
+
+    @Benchmark
+    public Object authenticate() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/bookings/my");
+        request.addHeader("Authorization", authorization);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
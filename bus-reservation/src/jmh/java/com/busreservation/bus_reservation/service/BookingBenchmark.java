@@ -0,0 +1,62 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.dto.BookingDto;
+import com.busreservation.bus_reservation.exception.BadRequestException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-seat bookings on random trips, seats and segments. Each successful booking is
+ * released again so occupancy stays at the configured level; conflicts are part of the measurement.
+ * Run with {@code -t 8} (or more) to include contention on the seat-claim locks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BookingBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int tripsPerDay;
+
+    @Param({"0", "0.5", "0.9"})
+    public double occupancy;
+
+    private SyntheticFleet fleet;
+    private SeatOccupancyService seatOccupancyService;
+    private BookingService bookingService;
+    private BookingDto.PassengerInfo passenger;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = new SyntheticFleet(tripsPerDay, occupancy, 42);
+        seatOccupancyService = fleet.seatOccupancyService();
+        bookingService = fleet.bookingService(seatOccupancyService);
+        passenger = BookingDto.PassengerInfo.builder().name("Benchmark").phone("9999999999").build();
+    }
+
+    @Benchmark
+    public Object createBooking() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long tripId = 1 + random.nextInt(tripsPerDay);
+        String seatNo = String.valueOf(1 + random.nextInt(SyntheticFleet.CAPACITY));
+        int from = random.nextInt(SyntheticFleet.STOPS_PER_TRIP - 1);
+        int to = from + 1 + random.nextInt(SyntheticFleet.STOPS_PER_TRIP - 1 - from);
+
+        try {
+            BookingDto.BookingResponse response = bookingService.createBooking(null, BookingDto.BookingRequest.builder()
+                    .tripId(tripId)
+                    .date(fleet.travelDate)
+                    .fromStopSeq(from)
+                    .toStopSeq(to)
+                    .seatNo(seatNo)
+                    .passenger(passenger)
+                    .build());
+            seatOccupancyService.get(tripId, fleet.travelDate).release(seatNo, from, to);
+            return response;
+        } catch (BadRequestException e) {
+            return e;
+        }
+    }
+}
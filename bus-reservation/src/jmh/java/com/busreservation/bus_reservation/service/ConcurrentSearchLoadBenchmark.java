@@ -0,0 +1,108 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.dto.TripSearchDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Load test: time to serve a burst of {@code concurrency} simultaneous searches, each followed by the seat map
+ * of one result, when every repository call is a {@code dbLatencyMillis} round trip over a {@code poolSize}
+ * connection pool. "platform" is Tomcat's default 200-thread pool, "virtual" one virtual thread per request.
+ * Run: ./mvnw -Pjmh test-compile exec:exec -Djmh.args="ConcurrentSearchLoadBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class ConcurrentSearchLoadBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"2000"})
+    public int concurrency;
+
+    @Param({"20", "500"})
+    public int poolSize;
+
+    @Param({"5"})
+    public int dbLatencyMillis;
+
+    private SyntheticFleet fleet;
+    private TripSearchService tripSearchService;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = new SyntheticFleet(1000, 0.5, 42);
+        tripSearchService = fleet.tripSearchService(fleet.seatOccupancyService());
+
+        // Warm the route index, occupancy engine and search cache before the database gets slow
+        for (int from = 0; from < SyntheticFleet.CITIES.length; from++) {
+            for (int hop = 1; hop < SyntheticFleet.STOPS_PER_TRIP; hop++) {
+                tripSearchService.searchTrips(search(from, hop));
+            }
+        }
+        fleet.simulateDatabase(dbLatencyMillis, poolSize);
+
+        executor = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int burst() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> requests = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            int n = i;
+            requests.add(executor.submit(() -> {
+                start.await();
+                return serve(n);
+            }));
+        }
+        start.countDown();
+
+        int served = 0;
+        for (Future<Integer> request : requests) {
+            served += request.get(5, TimeUnit.MINUTES);
+        }
+        return served;
+    }
+
+    // One user's request: a (cached) search, then the seat map of one result, which goes to the database
+    private int serve(int n) {
+        TripSearchDto.SearchResponse response = tripSearchService.searchTrips(
+                search(n % SyntheticFleet.CITIES.length, 1 + n % (SyntheticFleet.STOPS_PER_TRIP - 1)));
+        if (response.getTrips().isEmpty()) {
+            return 0;
+        }
+        TripSearchDto.TripResult trip = response.getTrips().get(n % response.getTrips().size());
+        return tripSearchService.getSeatAvailability(TripSearchDto.SeatAvailabilityRequest.builder()
+                .tripId(trip.getTripId())
+                .date(fleet.travelDate)
+                .fromSeq(trip.getFromStopSeq())
+                .toSeq(trip.getToStopSeq())
+                .build()).getSeats().size();
+    }
+
+    private TripSearchDto.SearchRequest search(int from, int hop) {
+        return TripSearchDto.SearchRequest.builder()
+                .date(fleet.travelDate)
+                .from(SyntheticFleet.CITIES[from])
+                .to(SyntheticFleet.CITIES[(from + hop) % SyntheticFleet.CITIES.length])
+                .seats(1)
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.dto.TripSearchDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trip search and per-trip seat maps over a warm route index, occupancy engine and search cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int tripsPerDay;
+
+    @Param({"0", "0.5", "0.9"})
+    public double occupancy;
+
+    private SyntheticFleet fleet;
+    private TripSearchService tripSearchService;
+    private TripSearchDto.SearchRequest searchRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = new SyntheticFleet(tripsPerDay, occupancy, 42);
+        tripSearchService = fleet.tripSearchService(fleet.seatOccupancyService());
+
+        // Chennai -> Salem: served by the quarter of trips whose six stops pass through both
+        searchRequest = TripSearchDto.SearchRequest.builder()
+                .date(fleet.travelDate)
+                .from(SyntheticFleet.CITIES[0])
+                .to(SyntheticFleet.CITIES[3])
+                .seats(1)
+                .build();
+
+        // Load every trip's occupancy once so iterations measure the steady state
+        tripSearchService.searchTrips(searchRequest);
+        for (int from = 0; from < SyntheticFleet.CITIES.length; from++) {
+            tripSearchService.searchTrips(TripSearchDto.SearchRequest.builder()
+                    .date(fleet.travelDate)
+                    .from(SyntheticFleet.CITIES[from])
+                    .to(SyntheticFleet.CITIES[(from + 1) % SyntheticFleet.CITIES.length])
+                    .seats(1)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public TripSearchDto.SearchResponse searchTrips() {
+        return tripSearchService.searchTrips(searchRequest);
+    }
+
+    @Benchmark
+    public TripSearchDto.SeatAvailabilityResponse seatAvailability() {
+        long tripId = 1 + ThreadLocalRandom.current().nextInt(tripsPerDay);
+        return tripSearchService.getSeatAvailability(TripSearchDto.SeatAvailabilityRequest.builder()
+                .tripId(tripId)
+                .date(fleet.travelDate)
+                .fromSeq(1)
+                .toSeq(4)
+                .build());
+    }
+}
@@ -0,0 +1,46 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.dto.ExcelImportDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the StopsWithTimings column, once per imported row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StopParsingBenchmark {
+
+    @Param({"4", "12", "30"})
+    public int stops;
+
+    private String stopsWithTimings;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Same shape as the master plan: Origin(06:00)[0km] -> Stop(07:10-07:15)[64km] -> ... -> Destination(14:00)[460km]
+        StringBuilder line = new StringBuilder();
+        LocalTime clock = LocalTime.of(6, 0);
+        for (int i = 0; i < stops; i++) {
+            if (i > 0) line.append(" -> ");
+            line.append("Stop ").append(i).append('(');
+            if (i == 0 || i == stops - 1) {
+                line.append(clock);
+            } else {
+                line.append(clock).append('-').append(clock.plusMinutes(5));
+            }
+            line.append(")[").append(i * 64).append("km]");
+            clock = clock.plusMinutes(70);
+        }
+        stopsWithTimings = line.toString();
+    }
+
+    @Benchmark
+    public List<ExcelImportDto.ParsedStop> parseStopsWithTimings() {
+        return ExcelImportService.parseStopsWithTimings(stopsWithTimings);
+    }
+}
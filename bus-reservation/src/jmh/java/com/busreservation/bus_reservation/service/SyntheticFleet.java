@@ -0,0 +1,238 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.model.*;
+import com.busreservation.bus_reservation.repository.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A generated fleet for one travel date, served by in-memory repository stand-ins,
+ * so benchmarks measure our code rather than the database.
+ * Every trip runs 6 consecutive stops of a circular 12-city corridor; {@code occupancy}
+ * is the share of seats on each trip booked for the full route.
+ */
+class SyntheticFleet {
+
+    static final String[] CITIES = {
+            "Chennai", "Vellore", "Krishnagiri", "Salem", "Erode", "Coimbatore",
+            "Palakkad", "Thrissur", "Kochi", "Madurai", "Trichy", "Villupuram"
+    };
+    static final String[] BUS_TYPES = {"Non-AC Seater", "Non-AC Sleeper", "AC Seater", "AC Sleeper"};
+    static final int STOPS_PER_TRIP = 6;
+    static final int CAPACITY = 40;
+
+    final LocalDate travelDate = LocalDate.now(ZoneId.of("Asia/Kolkata")).plusDays(7);
+    final int tripsPerDay;
+
+    private final Map<Long, Trip> trips = new HashMap<>();
+    private final Map<Long, List<TripStop>> stopsByTrip = new HashMap<>();
+    private final List<TripStop> allStops = new ArrayList<>();
+    private final Map<Long, List<Booking>> bookingsByTrip = new HashMap<>();
+    private final Map<String, List<Seat>> seatsByBus = new HashMap<>();
+    private final AtomicLong bookingIds = new AtomicLong();
+    private volatile long dbLatencyMillis;
+    private volatile Semaphore connections;
+
+    final TripRepository tripRepository;
+    final TripStopRepository tripStopRepository;
+    final BookingRepository bookingRepository;
+    final SeatRepository seatRepository;
+    final FareRateRepository fareRateRepository;
+    final UserRepository userRepository;
+
+    SyntheticFleet(int tripsPerDay, double occupancy, long seed) {
+        this.tripsPerDay = tripsPerDay;
+        Random random = new Random(seed);
+
+        for (long tripId = 1; tripId <= tripsPerDay; tripId++) {
+            Bus bus = Bus.builder()
+                    .busId("B" + tripId)
+                    .busType(BUS_TYPES[random.nextInt(BUS_TYPES.length)])
+                    .capacity(CAPACITY)
+                    .build();
+
+            int start = random.nextInt(CITIES.length);
+            LocalTime clock = LocalTime.of(5, 0).plusMinutes(random.nextInt(12 * 60));
+            int km = 0;
+            List<TripStop> stops = new ArrayList<>(STOPS_PER_TRIP);
+            Trip trip = Trip.builder()
+                    .id(tripId)
+                    .dayNo(travelDate.getDayOfMonth())
+                    .travelDate(travelDate)
+                    .bus(bus)
+                    .fromCity(CITIES[start])
+                    .toCity(CITIES[(start + STOPS_PER_TRIP - 1) % CITIES.length])
+                    .departureTime(clock)
+                    .price(0)
+                    .status("Running")
+                    .build();
+
+            for (int seq = 0; seq < STOPS_PER_TRIP; seq++) {
+                stops.add(TripStop.builder()
+                        .trip(trip)
+                        .seqNo(seq)
+                        .stopName(CITIES[(start + seq) % CITIES.length])
+                        .arriveTime(seq == 0 ? null : clock)
+                        .departTime(seq == STOPS_PER_TRIP - 1 ? null : clock.plusMinutes(5))
+                        .cumulativeKm(km)
+                        .build());
+                km += 60 + random.nextInt(40);
+                clock = clock.plusMinutes(75);
+            }
+            trip.setArrivalTime(stops.get(STOPS_PER_TRIP - 1).getArriveTime());
+            trip.setTotalKm(stops.get(STOPS_PER_TRIP - 1).getCumulativeKm());
+            trip.setStops(stops);
+
+            List<Seat> seats = new ArrayList<>(CAPACITY);
+            List<Booking> bookings = new ArrayList<>();
+            for (int seat = 1; seat <= CAPACITY; seat++) {
+                seats.add(Seat.builder().seatId(tripId * CAPACITY + seat).bus(bus).seatNo(String.valueOf(seat)).build());
+                if (random.nextDouble() < occupancy) {
+                    bookings.add(booking(trip, String.valueOf(seat), 0, STOPS_PER_TRIP - 1));
+                }
+            }
+
+            trips.put(tripId, trip);
+            stopsByTrip.put(tripId, stops);
+            allStops.addAll(stops);
+            bookingsByTrip.put(tripId, bookings);
+            seatsByBus.put(bus.getBusId(), seats);
+        }
+
+        List<FareRate> fareRates = List.of(
+                new FareRate("Non-AC Seater", new BigDecimal("1.00")),
+                new FareRate("Non-AC Sleeper", new BigDecimal("1.20")),
+                new FareRate("AC Seater", new BigDecimal("1.50")),
+                new FareRate("AC Sleeper", new BigDecimal("2.00")));
+
+        tripRepository = repository(TripRepository.class, Map.of(
+                "findById", args -> Optional.ofNullable(trips.get((Long) args[0])),
+                "findByIdForUpdate", args -> Optional.ofNullable(trips.get((Long) args[0]))));
+        tripStopRepository = repository(TripStopRepository.class, Map.of(
+                "findAllRunningWithTrip", args -> allStops,
+                "findByTripIdOrderBySeqNoAsc", args -> stopsByTrip.getOrDefault((Long) args[0], List.of())));
+        bookingRepository = repository(BookingRepository.class, Map.of(
+                "findSeatSegments", args -> segments(bookingsByTrip.getOrDefault((Long) args[0], List.of())),
+                "findSeatSegmentsByTripIdIn", args -> {
+                    List<Booking> found = new ArrayList<>();
+                    for (Object tripId : (Collection<?>) args[0]) {
+                        found.addAll(bookingsByTrip.getOrDefault((Long) tripId, List.of()));
+                    }
+                    return segments(found);
+                },
+                "findConflictingSeatNos", args -> List.of(),
+                "saveAll", args -> {
+                    List<Booking> saved = new ArrayList<>();
+                    for (Object booking : (Iterable<?>) args[0]) {
+                        ((Booking) booking).setBookingId(bookingIds.incrementAndGet());
+                        saved.add((Booking) booking);
+                    }
+                    return saved;
+                }));
+        seatRepository = repository(SeatRepository.class, Map.of(
+                "findByBusId", args -> seatsByBus.getOrDefault((String) args[0], List.of())));
+        fareRateRepository = repository(FareRateRepository.class, Map.of(
+                "findAll", args -> fareRates));
+        userRepository = repository(UserRepository.class, Map.of(
+                "findByEmail", args -> Optional.empty()));
+    }
+
+    /**
+     * Makes every repository call hold one of {@code poolSize} connections for {@code latencyMillis},
+     * so callers block the way they would on JDBC behind a connection pool.
+     */
+    void simulateDatabase(long latencyMillis, int poolSize) {
+        this.dbLatencyMillis = latencyMillis;
+        this.connections = new Semaphore(poolSize, true);
+    }
+
+    RouteIndexService routeIndexService() {
+        RouteIndexService routeIndexService = new RouteIndexService(tripStopRepository);
+        routeIndexService.rebuild();
+        return routeIndexService;
+    }
+
+    SeatOccupancyService seatOccupancyService() {
+        return new SeatOccupancyService(bookingRepository, new SeatLockStripes(256), new SimpleMeterRegistry(), event -> { });
+    }
+
+    FarePricingService farePricingService() {
+        return new FarePricingService(fareRateRepository, event -> { }, 3000);
+    }
+
+    TripSearchService tripSearchService(SeatOccupancyService seatOccupancyService) {
+        return new TripSearchService(tripRepository, farePricingService(), seatRepository,
+                routeIndexService(), seatOccupancyService, new SearchResultCache(new SimpleMeterRegistry(), 20_000),
+                new AvailabilityEvaluator(seatOccupancyService, new SimpleMeterRegistry(), 4, 300, false),
+                new SimpleMeterRegistry());
+    }
+
+    BookingService bookingService(SeatOccupancyService seatOccupancyService) {
+        return new BookingService(bookingRepository, tripRepository, tripStopRepository,
+                farePricingService(), userRepository, seatOccupancyService, new PnrGenerator(0),
+                new SeatHoldService(seatOccupancyService, new SimpleMeterRegistry(), 10, 6, 2, 12), 6);
+    }
+
+    private static List<BookedSeatSegment> segments(List<Booking> bookings) {
+        return bookings.stream()
+                .map(b -> new BookedSeatSegment(b.getTrip().getId(), b.getSeatNo(), b.getFromStopSeq(), b.getToStopSeq()))
+                .toList();
+    }
+
+    private Booking booking(Trip trip, String seatNo, int fromSeq, int toSeq) {
+        return Booking.builder()
+                .bookingId(bookingIds.incrementAndGet())
+                .pnr("SYN" + bookingIds.get())
+                .trip(trip)
+                .bookingDate(travelDate)
+                .seatNo(seatNo)
+                .fromStopSeq(fromSeq)
+                .toStopSeq(toSeq)
+                .passengerName("Passenger")
+                .passengerPhone("9999999999")
+                .fareAmount(0)
+                .status("CONFIRMED")
+                .bookedAt(LocalDateTime.now())
+                .build();
+    }
+
+    // Spring Data interfaces are large; a proxy answers only the methods the benchmarked code calls
+    private <T> T repository(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> handler = methods.get(method.getName());
+            if (handler != null) {
+                return roundTrip(handler, args);
+            }
+            return switch (method.getName()) {
+                case "toString" -> type.getSimpleName() + " stand-in";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            };
+        }));
+    }
+
+    private Object roundTrip(Function<Object[], Object> handler, Object[] args) throws InterruptedException {
+        Semaphore pool = connections;
+        if (pool == null) {
+            return handler.apply(args);
+        }
+        pool.acquire();
+        try {
+            Thread.sleep(dbLatencyMillis);
+            return handler.apply(args);
+        } finally {
+            pool.release();
+        }
+    }
+}
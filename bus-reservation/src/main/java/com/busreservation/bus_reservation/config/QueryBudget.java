@@ -0,0 +1,17 @@
+package com.busreservation.bus_reservation.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maximum number of SQL statements one request to the annotated endpoint may run,
+ * counting everything on the request thread including the JWT user lookup.
+ * Enforced according to {@code app.query-budget.mode}; on a class it applies to every endpoint without its own.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+    int value();
+}
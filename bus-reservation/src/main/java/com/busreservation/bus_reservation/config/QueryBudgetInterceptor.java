@@ -0,0 +1,43 @@
+package com.busreservation.bus_reservation.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Applies {@link QueryBudget} to the request. Modes ({@code app.query-budget.mode}):
+ * off, log (warn with the offending call site) or fail (throw at the statement that exceeds the budget).
+ */
+@Component
+public class QueryBudgetInterceptor implements HandlerInterceptor {
+
+    public enum Mode { OFF, LOG, FAIL }
+
+    private final Mode mode;
+
+    public QueryBudgetInterceptor(@Value("${app.query-budget.mode:off}") String mode) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (mode == Mode.OFF || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+
+        QueryBudget budget = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), QueryBudget.class);
+        if (budget == null) {
+            budget = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), QueryBudget.class);
+        }
+        if (budget != null) {
+            String endpoint = request.getMethod() + " " + handlerMethod.getBeanType().getSimpleName()
+                    + "." + handlerMethod.getMethod().getName();
+            StatementCounter.setBudget(budget.value(), endpoint, mode == Mode.FAIL);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+package com.busreservation.bus_reservation.config;
+
+import com.busreservation.bus_reservation.exception.QueryBudgetExceededException;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.StringJoiner;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread.
+ * {@link StatementCountFilter} resets it at the start of each request and reads it at the end;
+ * {@link QueryBudgetInterceptor} sets the endpoint's budget, which is checked on every statement
+ * so the report points at the statement that went over.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementCounter.class);
+    private static final String APP_PACKAGE = "com.busreservation.bus_reservation.";
+    private static final String CONFIG_PACKAGE = APP_PACKAGE + "config.";
+
+    private static final ThreadLocal<RequestStatements> CURRENT = ThreadLocal.withInitial(RequestStatements::new);
+
+    private static class RequestStatements {
+        int count;
+        int budget = -1; // no budget
+        String endpoint;
+        boolean failOnExceed;
+        boolean reported;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        RequestStatements statements = CURRENT.get();
+        statements.count++;
+        if (statements.budget >= 0 && statements.count > statements.budget && !statements.reported) {
+            statements.reported = true;
+            String message = "Query budget of " + statements.budget + " exceeded by " + statements.endpoint
+                    + " at " + fingerprint() + ": " + sql;
+            if (statements.failOnExceed) {
+                throw new QueryBudgetExceededException(message);
+            }
+            log.warn(message);
+        }
+        return sql;
+    }
+
+    public static void reset() {
+        RequestStatements statements = CURRENT.get();
+        statements.count = 0;
+        statements.budget = -1;
+        statements.endpoint = null;
+        statements.reported = false;
+    }
+
+    public static int current() {
+        return CURRENT.get().count;
+    }
+
+    static void setBudget(int budget, String endpoint, boolean failOnExceed) {
+        RequestStatements statements = CURRENT.get();
+        statements.budget = budget;
+        statements.endpoint = endpoint;
+        statements.failOnExceed = failOnExceed;
+    }
+
+    // Our own frames leading to the statement, innermost first, e.g. BookingService.bookSeats:92 < BookingController.createBooking:26
+    private static String fingerprint() {
+        StringJoiner frames = new StringJoiner(" < ");
+        int kept = 0;
+        for (StackTraceElement frame : Thread.currentThread().getStackTrace()) {
+            String className = frame.getClassName();
+            if (!className.startsWith(APP_PACKAGE) || className.startsWith(CONFIG_PACKAGE) || className.contains("$$")) {
+                continue;
+            }
+            frames.add(className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName() + ":" + frame.getLineNumber());
+            if (++kept == 6) break;
+        }
+        return kept == 0 ? "<no application frames>" : frames.toString();
+    }
+}
@@ -0,0 +1,19 @@
+package com.busreservation.bus_reservation.config;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Named thread factories that follow {@code spring.threads.virtual.enabled}, so our own executors
+ * switch to virtual threads together with Tomcat and the Spring task executors.
+ */
+public final class ThreadFactories {
+
+    private ThreadFactories() {
+    }
+
+    public static ThreadFactory named(String prefix, boolean virtual) {
+        return virtual ? Thread.ofVirtual().name(prefix, 0).factory() : new CustomizableThreadFactory(prefix);
+    }
+}
@@ -1,27 +1,38 @@
 package com.busreservation.bus_reservation.controller;
 
+import com.busreservation.bus_reservation.config.QueryBudget;
 import com.busreservation.bus_reservation.dto.ExcelImportDto;
-import com.busreservation.bus_reservation.service.ExcelImportService;
+import com.busreservation.bus_reservation.dto.FareRateDto;
+import com.busreservation.bus_reservation.service.FarePricingService;
+import com.busreservation.bus_reservation.service.ImportJobService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.util.List;
+
 @RestController
 @RequestMapping("/admin")
 @PreAuthorize("hasRole('ADMIN')")
 public class AdminController {
 
-    private final ExcelImportService excelImportService;
+    private final ImportJobService importJobService;
+    private final FarePricingService farePricingService;
 
-    public AdminController(ExcelImportService excelImportService) {
-        this.excelImportService = excelImportService;
+    public AdminController(ImportJobService importJobService, FarePricingService farePricingService) {
+        this.importJobService = importJobService;
+        this.farePricingService = farePricingService;
     }
 
+    // Imports run on the job pool; the request threads only queue, poll or cancel them
+    @QueryBudget(0)
     @PostMapping("/import")
     public ResponseEntity<ExcelImportDto.ImportResponse> importExcel(
             @RequestParam("file") MultipartFile file
-    ) {
+    ) throws IOException {
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().body(
                 ExcelImportDto.ImportResponse.builder()
@@ -31,7 +42,7 @@ public class AdminController {
             );
         }
 
-        if (!file.getOriginalFilename().endsWith(".xlsx")) {
+        if (file.getOriginalFilename() == null || !file.getOriginalFilename().endsWith(".xlsx")) {
             return ResponseEntity.badRequest().body(
                 ExcelImportDto.ImportResponse.builder()
                     .success(false)
@@ -40,7 +51,47 @@ public class AdminController {
             );
         }
 
-        ExcelImportDto.ImportResponse response = excelImportService.importExcel(file);
+        // Same queue and limits as /import/jobs; this request just waits for its job to finish
+        ExcelImportDto.ImportResponse response = importJobService.importAndWait(file);
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    @QueryBudget(0)
+    @PostMapping("/import/jobs")
+    public ResponseEntity<ExcelImportDto.ImportJobStatus> submitImportJob(
+            @RequestParam("file") MultipartFile file
+    ) throws IOException {
+        if (file.isEmpty() || file.getOriginalFilename() == null || !file.getOriginalFilename().endsWith(".xlsx")) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(importJobService.submit(file));
+    }
+
+    @QueryBudget(0)
+    @GetMapping("/import/jobs/{jobId}")
+    public ResponseEntity<ExcelImportDto.ImportJobStatus> getImportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(importJobService.getStatus(jobId));
+    }
+
+    @QueryBudget(0)
+    @DeleteMapping("/import/jobs/{jobId}")
+    public ResponseEntity<ExcelImportDto.ImportJobStatus> cancelImportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(importJobService.cancel(jobId));
+    }
+
+    @QueryBudget(1)
+    @GetMapping("/fare-rates")
+    public ResponseEntity<List<FareRateDto.FareRateResponse>> getFareRates() {
+        return ResponseEntity.ok(farePricingService.getRates());
+    }
+
+    @QueryBudget(2)
+    @PutMapping("/fare-rates/{category}")
+    public ResponseEntity<FareRateDto.FareRateResponse> updateFareRate(
+            @PathVariable String category,
+            @RequestBody FareRateDto.UpdateFareRateRequest request
+    ) {
+        return ResponseEntity.ok(farePricingService.updateRate(category, request.getRatePerKm()));
+    }
+}
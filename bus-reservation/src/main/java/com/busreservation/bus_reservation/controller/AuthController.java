@@ -1,5 +1,6 @@
 package com.busreservation.bus_reservation.controller;
 
+import com.busreservation.bus_reservation.config.QueryBudget;
 import com.busreservation.bus_reservation.dto.AuthDtos;
 import com.busreservation.bus_reservation.service.AuthService;
 import org.springframework.http.ResponseEntity;
@@ -15,11 +16,13 @@ public class AuthController {
         this.authService = authService;
     }
 
+    @QueryBudget(2)
     @PostMapping("/register")
     public ResponseEntity<AuthDtos.AuthResponse> register(@RequestBody AuthDtos.RegisterRequest req) {
         return ResponseEntity.ok(authService.register(req));
     }
 
+    @QueryBudget(2)
     @PostMapping("/login")
     public ResponseEntity<AuthDtos.AuthResponse> login(@RequestBody AuthDtos.LoginRequest req) {
         return ResponseEntity.ok(authService.login(req));
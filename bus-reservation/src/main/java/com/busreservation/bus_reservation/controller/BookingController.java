@@ -1,7 +1,9 @@
 package com.busreservation.bus_reservation.controller;
 
+import com.busreservation.bus_reservation.config.QueryBudget;
 import com.busreservation.bus_reservation.dto.BookingDto;
 import com.busreservation.bus_reservation.service.BookingService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -17,6 +19,7 @@ public class BookingController {
         this.bookingService = bookingService;
     }
 
+    @QueryBudget(10)
     @PostMapping
     public ResponseEntity<BookingDto.BookingResponse> createBooking(
             Authentication authentication,
@@ -26,6 +29,53 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.createBooking(userEmail, request));
     }
 
+    // Same as a single booking: seats are claimed and inserted as one batch
+    @QueryBudget(10)
+    @PostMapping("/group")
+    public ResponseEntity<BookingDto.GroupBookingResponse> createGroupBooking(
+            Authentication authentication,
+            @RequestBody BookingDto.GroupBookingRequest request
+    ) {
+        String userEmail = authentication != null ? authentication.getName() : null;
+        return ResponseEntity.ok(bookingService.createGroupBooking(userEmail, request));
+    }
+
+    // Trip and stop lookups (plus today's departure check) and a cold occupancy load; the hold itself is in memory
+    @QueryBudget(4)
+    @PostMapping("/holds")
+    public ResponseEntity<BookingDto.HoldResponse> holdSeats(
+            Authentication authentication,
+            HttpServletRequest httpRequest,
+            @RequestBody BookingDto.HoldRequest request
+    ) {
+        String userEmail = authentication != null ? authentication.getName() : null;
+        return ResponseEntity.ok(bookingService.holdSeats(userEmail, httpRequest.getRemoteAddr(), request));
+    }
+
+    @QueryBudget(0)
+    @DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<Void> releaseHold(
+            Authentication authentication,
+            @PathVariable String holdId
+    ) {
+        String userEmail = authentication != null ? authentication.getName() : null;
+        bookingService.releaseHold(userEmail, holdId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Booking with its owner, the conditional update and the PNR view of the result
+    @QueryBudget(3)
+    @PostMapping("/{pnr}/cancel")
+    public ResponseEntity<BookingDto.BookingResponse> cancelBooking(
+            Authentication authentication,
+            @PathVariable String pnr
+    ) {
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+        return ResponseEntity.ok(bookingService.cancelBooking(authentication.getName(), admin, pnr));
+    }
+
+    @QueryBudget(1)
     @GetMapping("/{pnr}")
     public ResponseEntity<BookingDto.BookingResponse> getBookingByPnr(
             @PathVariable String pnr
@@ -1,5 +1,6 @@
 package com.busreservation.bus_reservation.controller;
 
+import com.busreservation.bus_reservation.config.QueryBudget;
 import com.busreservation.bus_reservation.dto.BusDtos;
 import com.busreservation.bus_reservation.service.BusService;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -18,6 +19,7 @@ public class BusController {
         this.busService = busService;
     }
 
+    @QueryBudget(3)
     @GetMapping("/search")
     public ResponseEntity<BusDtos.BusSearchResponse> searchBuses(
             @RequestParam Long fromCityId,
@@ -28,11 +30,13 @@ public class BusController {
         return ResponseEntity.ok(busService.searchBuses(fromCityId, toCityId, date, seats));
     }
 
+    @QueryBudget(2)
     @GetMapping("/{busId}")
     public ResponseEntity<BusDtos.BusDetailsResponse> getBusDetails(@PathVariable Long busId) {
         return ResponseEntity.ok(busService.getBusDetails(busId));
     }
 
+    @QueryBudget(1)
     @GetMapping("/{busId}/seats")
     public ResponseEntity<BusDtos.SeatAvailabilityResponse> getSeatAvailability(
             @PathVariable Long busId,
@@ -1,5 +1,6 @@
 package com.busreservation.bus_reservation.controller;
 
+import com.busreservation.bus_reservation.config.QueryBudget;
 import com.busreservation.bus_reservation.dto.CityDto;
 import com.busreservation.bus_reservation.service.CityService;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +18,7 @@ public class CityController {
         this.cityService = cityService;
     }
 
+    @QueryBudget(2)
     @GetMapping
     public ResponseEntity<List<CityDto.CityResponse>> getCities(
             @RequestParam(required = false, defaultValue = "") String q
@@ -1,5 +1,6 @@
 package com.busreservation.bus_reservation.controller;
 
+import com.busreservation.bus_reservation.config.QueryBudget;
 import com.busreservation.bus_reservation.dto.TripSearchDto;
 import com.busreservation.bus_reservation.service.TripSearchService;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -18,6 +19,8 @@ public class TripController {
         this.tripSearchService = tripSearchService;
     }
 
+    // Route lookup is in memory; at most fare rates and one bookings query for trips not yet loaded
+    @QueryBudget(3)
     @GetMapping("/search")
     public ResponseEntity<TripSearchDto.SearchResponse> searchTrips(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
@@ -37,6 +40,7 @@ public class TripController {
         return ResponseEntity.ok(tripSearchService.searchTrips(request));
     }
 
+    @QueryBudget(4)
     @GetMapping("/{tripId}/availability")
     public ResponseEntity<TripSearchDto.SeatAvailabilityResponse> getSeatAvailability(
             @PathVariable Long tripId,
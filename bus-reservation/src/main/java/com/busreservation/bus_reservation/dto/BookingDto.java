@@ -4,6 +4,7 @@ import lombok.*;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class BookingDto {
 
@@ -18,6 +19,29 @@ public class BookingDto {
         private Integer toStopSeq;
         private String seatNo;
         private PassengerInfo passenger;
+        private String holdId;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class GroupBookingRequest {
+        private Long tripId;
+        private LocalDate date;
+        private Integer fromStopSeq;
+        private Integer toStopSeq;
+        private List<SeatSelection> seats;
+        private String holdId;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class SeatSelection {
+        private String seatNo;
+        private PassengerInfo passenger;
     }
 
     @Data
@@ -55,4 +79,39 @@ public class BookingDto {
         private String seatNo;
         private PassengerInfo passenger;
     }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class GroupBookingResponse {
+        private List<BookingResponse> bookings;
+        private Integer totalFare;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class HoldRequest {
+        private Long tripId;
+        private LocalDate date;
+        private Integer fromStopSeq;
+        private Integer toStopSeq;
+        private List<String> seatNos;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class HoldResponse {
+        private String holdId;
+        private Long tripId;
+        private LocalDate date;
+        private Integer fromStopSeq;
+        private Integer toStopSeq;
+        private List<String> seatNos;
+        private LocalDateTime expiresAt;
+    }
 }
\ No newline at end of file
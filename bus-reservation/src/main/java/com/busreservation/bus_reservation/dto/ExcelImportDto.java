@@ -2,6 +2,7 @@ package com.busreservation.bus_reservation.dto;
 
 import lombok.*;
 
+import java.time.Instant;
 import java.time.LocalTime;
 import java.util.List;
 
@@ -36,9 +37,30 @@ public class ExcelImportDto {
         private int successfulRows;
         private int skippedRows;
         private int maintenanceRows;
+        private int insertedRows; // trips created
+        private int updatedRows; // trips rewritten because their row changed
+        private int unchangedRows; // rows identical to the stored trip, not written
         private String batchId;
     }
 
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ImportJobStatus {
+        private String jobId; // same as the import batchId
+        private String status; // QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+        private int rowsRead;
+        private int rowsProcessed;
+        private double rowsPerSecond;
+        private List<String> warnings;
+        private List<String> errors;
+        private ImportSummary summary; // set once the job has finished
+        private Instant submittedAt;
+        private Instant startedAt;
+        private Instant finishedAt;
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
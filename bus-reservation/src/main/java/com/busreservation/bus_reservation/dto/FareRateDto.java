@@ -0,0 +1,24 @@
+package com.busreservation.bus_reservation.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+
+public class FareRateDto {
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class FareRateResponse {
+        private String category;
+        private BigDecimal ratePerKm;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class UpdateFareRateRequest {
+        private BigDecimal ratePerKm;
+    }
+}
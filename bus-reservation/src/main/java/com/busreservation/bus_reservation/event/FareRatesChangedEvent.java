@@ -0,0 +1,7 @@
+package com.busreservation.bus_reservation.event;
+
+/**
+ * Published whenever rows in fare_rates are inserted or edited.
+ */
+public record FareRatesChangedEvent() {
+}
@@ -0,0 +1,10 @@
+package com.busreservation.bus_reservation.event;
+
+import java.time.LocalDate;
+
+/**
+ * Published when seats of one trip on one travel date are claimed or released
+ * and the change has committed (or been rolled back).
+ */
+public record SeatInventoryChangedEvent(Long tripId, LocalDate date) {
+}
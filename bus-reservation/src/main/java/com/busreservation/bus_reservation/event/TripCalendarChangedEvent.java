@@ -0,0 +1,10 @@
+package com.busreservation.bus_reservation.event;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Published by TripCalendarService once dated trips for {@code dates} were created, changed or archived.
+ */
+public record TripCalendarChangedEvent(Set<LocalDate> dates) {
+}
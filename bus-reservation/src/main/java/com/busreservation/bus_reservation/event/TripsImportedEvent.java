@@ -0,0 +1,10 @@
+package com.busreservation.bus_reservation.event;
+
+import java.util.Set;
+
+/**
+ * Published by the Excel importer once a batch of trips and stops has been written.
+ * {@code dayNos} are the days whose trips were inserted or changed.
+ */
+public record TripsImportedEvent(String batchId, Set<Integer> dayNos) {
+}
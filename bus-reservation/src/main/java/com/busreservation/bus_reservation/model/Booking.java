@@ -11,11 +11,16 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        // Covering index for the occupancy loader's (seatNo, fromStopSeq, toStopSeq) projection
+        @Index(name = "idx_bookings_trip_date_status",
+                columnList = "trip_id, booking_date, status, seat_no, from_stop_seq, to_stop_seq")
+})
 public class Booking {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long bookingId;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
+    private Long bookingId; // sequence (not IDENTITY) so inserts can be JDBC-batched
 
     @Column(nullable = false, unique = true)
     private String pnr;
@@ -13,14 +13,26 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "trips")
+@Table(name = "trips", indexes = {
+        @Index(name = "idx_trips_day_status", columnList = "day_no, status"),
+        @Index(name = "idx_trips_travel_date_status", columnList = "travel_date, status")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_trips_template_date", columnNames = {"template_trip_id", "travel_date"})
+})
 public class Trip {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trips_seq")
+    @SequenceGenerator(name = "trips_seq", sequenceName = "trips_seq", allocationSize = 50)
+    private Long id; // sequence (not IDENTITY) so the importer can batch inserts
 
     @Column(nullable = false)
-    private Integer dayNo; // 1-31 from Excel
+    private Integer dayNo; // 1-31 from Excel; for dated trips, the day of month of travelDate
+
+    @Column
+    private LocalDate travelDate; // null for master-plan templates; set on trips materialized for a calendar date
+
+    @Column
+    private Long templateTripId; // master-plan trip a dated trip was materialized from
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "bus_id", nullable = false)
@@ -50,6 +62,9 @@ public class Trip {
     @Column
     private String importBatchId; // for tracking imports
 
+    @Column(length = 64)
+    private String rowFingerprint; // SHA-256 of the Excel row and its stops; dated trips copy their template's
+
     @OneToMany(mappedBy = "trip", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @OrderBy("seqNo ASC")
     @Builder.Default
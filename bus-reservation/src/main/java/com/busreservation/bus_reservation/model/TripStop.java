@@ -10,7 +10,9 @@ import java.time.LocalTime;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "trip_stops")
+@Table(name = "trip_stops", indexes = {
+        @Index(name = "idx_trip_stops_trip_seq", columnList = "trip_id, seq_no")
+})
 public class TripStop {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
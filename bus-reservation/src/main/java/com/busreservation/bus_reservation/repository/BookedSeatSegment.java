@@ -0,0 +1,7 @@
+package com.busreservation.bus_reservation.repository;
+
+/**
+ * The part of a booking the occupancy engine needs: which seat, over which stop segment.
+ */
+public record BookedSeatSegment(Long tripId, String seatNo, Integer fromStopSeq, Integer toStopSeq) {
+}
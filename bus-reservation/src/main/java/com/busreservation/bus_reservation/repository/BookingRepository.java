@@ -2,13 +2,64 @@ package com.busreservation.bus_reservation.repository;
 
 import com.busreservation.bus_reservation.model.Booking;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
-    List<Booking> findByTripIdAndBookingDateAndStatus(Long tripId, LocalDate bookingDate, String status);
+    // Projections answered from idx_bookings_trip_date_status alone; no entities, no lazy associations
+    @Query("SELECT new com.busreservation.bus_reservation.repository.BookedSeatSegment(b.trip.id, b.seatNo, b.fromStopSeq, b.toStopSeq) " +
+           "FROM Booking b WHERE b.trip.id = :tripId AND b.bookingDate = :bookingDate AND b.status = :status")
+    List<BookedSeatSegment> findSeatSegments(@Param("tripId") Long tripId, @Param("bookingDate") LocalDate bookingDate,
+                                             @Param("status") String status);
+
+    @Query("SELECT new com.busreservation.bus_reservation.repository.BookedSeatSegment(b.trip.id, b.seatNo, b.fromStopSeq, b.toStopSeq) " +
+           "FROM Booking b WHERE b.trip.id IN :tripIds AND b.bookingDate = :bookingDate AND b.status = :status")
+    List<BookedSeatSegment> findSeatSegmentsByTripIdIn(@Param("tripIds") Collection<Long> tripIds,
+                                                       @Param("bookingDate") LocalDate bookingDate,
+                                                       @Param("status") String status);
     Optional<Booking> findByPnr(String pnr);
+
+    // Committed bookings overlapping [fromSeq, toSeq) on any of these seats; answered from the covering index
+    @Query("SELECT b.seatNo FROM Booking b WHERE b.trip.id = :tripId AND b.bookingDate = :bookingDate " +
+           "AND b.status = 'CONFIRMED' AND b.seatNo IN :seatNos AND b.fromStopSeq < :toSeq AND b.toStopSeq > :fromSeq")
+    List<String> findConflictingSeatNos(@Param("tripId") Long tripId, @Param("bookingDate") LocalDate bookingDate,
+                                        @Param("seatNos") Collection<String> seatNos,
+                                        @Param("fromSeq") Integer fromSeq, @Param("toSeq") Integer toSeq);
+
+    @Query("SELECT DISTINCT b.trip.id FROM Booking b " +
+           "WHERE b.trip.id IN :tripIds AND b.bookingDate = :bookingDate AND b.status = 'CONFIRMED'")
+    List<Long> findTripIdsWithConfirmedBookings(@Param("tripIds") Collection<Long> tripIds,
+                                                @Param("bookingDate") LocalDate bookingDate);
+
+    // One statement for a PNR lookup: booking, trip, bus and the two stops of the booked segment
+    @Query("SELECT new com.busreservation.bus_reservation.repository.BookingView(" +
+           "b.bookingId, b.pnr, b.status, b.fareAmount, b.bookedAt, bus.busId, bus.busType, b.bookingDate, " +
+           "fs.stopName, ts.stopName, b.seatNo, b.passengerName, b.passengerPhone) " +
+           "FROM Booking b JOIN b.trip t JOIN t.bus bus " +
+           "LEFT JOIN TripStop fs ON fs.trip = t AND fs.seqNo = b.fromStopSeq " +
+           "LEFT JOIN TripStop ts ON ts.trip = t AND ts.seqNo = b.toStopSeq " +
+           "WHERE b.pnr = :pnr")
+    Optional<BookingView> findViewByPnr(@Param("pnr") String pnr);
     List<Booking> findByUserIdOrderByBookedAtDesc(Long userId);
+
+    // Owner check for cancellation without a second query for the user
+    @Query("SELECT b FROM Booking b LEFT JOIN FETCH b.user WHERE b.pnr = :pnr")
+    Optional<Booking> findWithUserByPnr(@Param("pnr") String pnr);
+
+    // Conditional on CONFIRMED, so of two concurrent cancellations only one sees a row change
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = 'CANCELLED' WHERE b.bookingId = :bookingId AND b.status = 'CONFIRMED'")
+    int cancelConfirmed(@Param("bookingId") Long bookingId);
+
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = 'CANCELLED' " +
+           "WHERE b.trip.id IN :tripIds AND b.bookingDate = :bookingDate AND b.status = 'CONFIRMED'")
+    int cancelConfirmedByTripIdIn(@Param("tripIds") Collection<Long> tripIds,
+                                  @Param("bookingDate") LocalDate bookingDate);
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.busreservation.bus_reservation.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Flat read model of one booking with its bus and the names of its boarding and dropping stops.
+ * Stop names are null when the trip no longer has a stop at the booked seq.
+ */
+public record BookingView(Long bookingId, String pnr, String status, Integer fareAmount, LocalDateTime bookedAt,
+                          String busId, String busType, LocalDate travelDate, String fromStop, String toStop,
+                          String seatNo, String passengerName, String passengerPhone) {
+}
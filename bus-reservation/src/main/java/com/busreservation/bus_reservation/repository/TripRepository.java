@@ -1,15 +1,42 @@
 package com.busreservation.bus_reservation.repository;
 
 import com.busreservation.bus_reservation.model.Trip;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface TripRepository extends JpaRepository<Trip, Long> {
     List<Trip> findByDayNoAndStatus(Integer dayNo, String status);
+
+    // Row lock until the booking transaction ends: bookings of one trip take turns on every node
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Trip t WHERE t.id = :id")
+    Optional<Trip> findByIdForUpdate(@Param("id") Long id);
     
     @Query("SELECT t FROM Trip t WHERE t.dayNo = :dayNo AND t.bus.busId = :busId")
     Trip findByDayNoAndBusId(@Param("dayNo") Integer dayNo, @Param("busId") String busId);
+
+    // Master-plan templates only; dated trips are managed by TripCalendarService
+    @Query("SELECT t FROM Trip t JOIN FETCH t.bus b WHERE t.travelDate IS NULL AND t.dayNo IN :dayNos AND b.busId IN :busIds")
+    List<Trip> findByDayNoInAndBusIdIn(@Param("dayNos") Collection<Integer> dayNos, @Param("busIds") Collection<String> busIds);
+
+    @Query("SELECT t FROM Trip t JOIN FETCH t.bus WHERE t.travelDate IS NULL AND t.dayNo = :dayNo")
+    List<Trip> findTemplatesByDayNo(@Param("dayNo") Integer dayNo);
+
+    List<Trip> findByTravelDate(LocalDate travelDate);
+
+    @Query("SELECT DISTINCT t.travelDate FROM Trip t WHERE t.travelDate < :before AND t.status <> 'Archived'")
+    List<LocalDate> findUnarchivedTravelDatesBefore(@Param("before") LocalDate before);
+
+    @Modifying
+    @Query("UPDATE Trip t SET t.status = 'Archived' WHERE t.travelDate < :before AND t.status <> 'Archived'")
+    int archiveTravelDatesBefore(@Param("before") LocalDate before);
 }
\ No newline at end of file
@@ -6,12 +6,32 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface TripStopRepository extends JpaRepository<TripStop, Long> {
     List<TripStop> findByTripIdOrderBySeqNoAsc(Long tripId);
+
+    // Dated trips only: templates are never searched or booked directly
+    @Query("SELECT ts FROM TripStop ts JOIN FETCH ts.trip t JOIN FETCH t.bus WHERE t.status = 'Running' AND t.travelDate IS NOT NULL ORDER BY t.id, ts.seqNo")
+    List<TripStop> findAllRunningWithTrip();
+
+    @Query("SELECT ts FROM TripStop ts JOIN FETCH ts.trip t JOIN FETCH t.bus WHERE t.status = 'Running' AND t.travelDate IN :dates ORDER BY t.id, ts.seqNo")
+    List<TripStop> findRunningWithTripByTravelDateIn(@Param("dates") Collection<LocalDate> dates);
     
     @Modifying
     @Query("DELETE FROM TripStop ts WHERE ts.trip.id = :tripId")
     void deleteByTripId(@Param("tripId") Long tripId);
+
+    @Query("SELECT ts.trip.id, COUNT(ts) FROM TripStop ts WHERE ts.trip.id IN :tripIds GROUP BY ts.trip.id")
+    List<Object[]> countByTripIdIn(@Param("tripIds") Collection<Long> tripIds);
+
+    // (tripId, seqNo, stopName) rows: what a booking's from/to seqs refer to
+    @Query("SELECT ts.trip.id, ts.seqNo, ts.stopName FROM TripStop ts WHERE ts.trip.id IN :tripIds ORDER BY ts.trip.id, ts.seqNo")
+    List<Object[]> findLayoutsByTripIdIn(@Param("tripIds") Collection<Long> tripIds);
+
+    @Modifying
+    @Query("DELETE FROM TripStop ts WHERE ts.trip.id IN :tripIds")
+    void deleteByTripIdIn(@Param("tripIds") Collection<Long> tripIds);
 }
\ No newline at end of file
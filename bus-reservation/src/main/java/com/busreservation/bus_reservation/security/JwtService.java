@@ -1,6 +1,7 @@
 package com.busreservation.bus_reservation.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -16,18 +17,32 @@ import java.util.function.Function;
 @Service
 public class JwtService {
 
-    @Value("${app.security.jwt.secret}")
-    private String secret;
+    private final long jwtExpirationMs;
+    // Built once: the HMAC key and the (immutable, thread-safe) parser bound to it
+    private final Key signInKey;
+    private final JwtParser parser;
 
-    @Value("${app.security.jwt.expiration-ms}")
-    private long jwtExpirationMs;
+    public JwtService(@Value("${app.security.jwt.secret}") String secret,
+                      @Value("${app.security.jwt.expiration-ms}") long jwtExpirationMs) {
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.signInKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+    }
+
+    /**
+     * Verifies the signature and expiry once and returns the claims.
+     * Throws a {@link io.jsonwebtoken.JwtException} for a forged, malformed or expired token.
+     */
+    public Claims parseToken(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
 
@@ -37,33 +52,13 @@ public class JwtService {
                 .setSubject(username)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean isTokenValid(String token, String username) {
-        final String usernameInToken = extractUsername(token);
-        return (usernameInToken.equals(username) && !isTokenExpired(token));
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Key getSignInKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        // parseToken already rejects expired tokens; the explicit check keeps this safe for clock-skew settings
+        final Claims claims = parseToken(token);
+        return claims.getSubject().equals(username) && !claims.getExpiration().before(new Date());
     }
 }
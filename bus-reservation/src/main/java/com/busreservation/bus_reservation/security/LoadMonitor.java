@@ -0,0 +1,111 @@
+package com.busreservation.bus_reservation.security;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides when to shed load. Request latencies go into a ring of recent samples; once a second the p99 of
+ * the samples since the previous tick and the Hikari pool's state are folded into two flags, so the rate
+ * limiter pays nothing on the request path. Search is shed when p99 latency or pool usage crosses its
+ * threshold, bookings only when requests are already queueing for a connection.
+ */
+@Component
+public class LoadMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadMonitor.class);
+    private static final int RESERVOIR_SIZE = 1024;
+
+    private final AtomicLongArray latencies = new AtomicLongArray(RESERVOIR_SIZE);
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final HikariDataSource hikari;
+    private final long p99ThresholdNanos;
+    private final double poolUsageThreshold;
+    private final int bookingWaitingThreshold;
+
+    private int sampledUpTo;
+    private volatile long p99Nanos;
+    private volatile boolean shedSearch;
+    private volatile boolean shedBooking;
+
+    public LoadMonitor(DataSource dataSource, MeterRegistry meterRegistry,
+                       @Value("${app.rate-limit.shed.p99-ms:1500}") long p99ThresholdMs,
+                       @Value("${app.rate-limit.shed.pool-usage:0.9}") double poolUsageThreshold,
+                       @Value("${app.rate-limit.shed.booking-pool-waiting:10}") int bookingWaitingThreshold) {
+        this.hikari = unwrapHikari(dataSource);
+        this.p99ThresholdNanos = p99ThresholdMs * 1_000_000;
+        this.poolUsageThreshold = poolUsageThreshold;
+        this.bookingWaitingThreshold = bookingWaitingThreshold;
+        meterRegistry.gauge("ratelimit.latency.p99", Tags.empty(), this, m -> m.p99Nanos / 1_000_000.0);
+        meterRegistry.gauge("ratelimit.shedding", Tags.of("lane", "search"), this, m -> m.shedSearch ? 1 : 0);
+        meterRegistry.gauge("ratelimit.shedding", Tags.of("lane", "booking"), this, m -> m.shedBooking ? 1 : 0);
+    }
+
+    public void recordLatency(long nanos) {
+        latencies.set(Math.floorMod(recorded.getAndIncrement(), RESERVOIR_SIZE), nanos);
+    }
+
+    public boolean shouldShedSearch() {
+        return shedSearch;
+    }
+
+    public boolean shouldShedBooking() {
+        return shedBooking;
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public synchronized void sample() {
+        // Only this tick's samples (at most one ring's worth), so an old spike cannot keep shedding on
+        int upTo = recorded.get();
+        int count = Math.min(upTo - sampledUpTo, RESERVOIR_SIZE);
+        long[] recent = new long[Math.max(count, 0)];
+        for (int i = 0; i < recent.length; i++) {
+            recent[i] = latencies.get(Math.floorMod(upTo - 1 - i, RESERVOIR_SIZE));
+        }
+        sampledUpTo = upTo;
+        Arrays.sort(recent);
+        p99Nanos = recent.length == 0 ? 0 : recent[(int) Math.ceil(recent.length * 0.99) - 1];
+
+        double poolUsage = 0;
+        int waiting = 0;
+        HikariPoolMXBean pool = hikari != null ? hikari.getHikariPoolMXBean() : null; // null until the pool starts
+        if (pool != null) {
+            int total = pool.getTotalConnections();
+            poolUsage = total == 0 ? 0 : (double) pool.getActiveConnections() / total;
+            waiting = pool.getThreadsAwaitingConnection();
+        }
+
+        boolean search = p99Nanos > p99ThresholdNanos || (poolUsage >= poolUsageThreshold && waiting > 0);
+        boolean booking = waiting >= bookingWaitingThreshold;
+        if (search != shedSearch || booking != shedBooking) {
+            log.warn("Load shedding search={} booking={} (p99 {} ms, pool usage {}, waiting {})",
+                    search, booking, p99Nanos / 1_000_000, String.format("%.2f", poolUsage), waiting);
+        }
+        shedSearch = search;
+        shedBooking = booking;
+    }
+
+    private static HikariDataSource unwrapHikari(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class);
+            }
+        } catch (SQLException e) {
+            log.debug("Could not unwrap the data source", e);
+        }
+        log.info("Data source is not Hikari; load shedding uses latency only");
+        return null;
+    }
+}
@@ -0,0 +1,147 @@
+package com.busreservation.bus_reservation.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client token buckets for search and booking traffic, plus load shedding, in the security chain right
+ * after {@link JwtAuthFilter} so signed-in callers are limited per user as well as per IP.
+ * Bookings are a separate lane with their own buckets and are shed only when the connection pool is queueing,
+ * so scrapers hammering search cannot starve checkouts. Rejections are immediate: 429 when a bucket is empty,
+ * 503 while {@link LoadMonitor} says the service is overloaded. Other endpoints pass through untouched.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    enum Lane { SEARCH, BOOKING }
+
+    private record BucketKey(Lane lane, String client) {
+    }
+
+    private final LoadMonitor loadMonitor;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double searchRate;
+    private final int searchBurst;
+    private final double bookingRate;
+    private final int bookingBurst;
+
+    private final ConcurrentMap<BucketKey, TokenBucket> ipBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<BucketKey, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+
+    public RateLimitFilter(LoadMonitor loadMonitor, MeterRegistry meterRegistry,
+                           @Value("${app.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${app.rate-limit.search.per-second:5}") double searchRate,
+                           @Value("${app.rate-limit.search.burst:20}") int searchBurst,
+                           @Value("${app.rate-limit.booking.per-second:2}") double bookingRate,
+                           @Value("${app.rate-limit.booking.burst:10}") int bookingBurst) {
+        this.loadMonitor = loadMonitor;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.searchRate = searchRate;
+        this.searchBurst = searchBurst;
+        this.bookingRate = bookingRate;
+        this.bookingBurst = bookingBurst;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || lane(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Lane lane = lane(request);
+
+        boolean shed = lane == Lane.BOOKING ? loadMonitor.shouldShedBooking() : loadMonitor.shouldShedSearch();
+        if (shed) {
+            reject(response, lane, HttpStatus.SERVICE_UNAVAILABLE, "overloaded", 1,
+                    "Service is busy, please retry shortly");
+            return;
+        }
+
+        long now = System.nanoTime();
+        long waitNanos = acquire(ipBuckets, new BucketKey(lane, request.getRemoteAddr()), now);
+        String user = authenticatedUser();
+        if (waitNanos == 0 && user != null) {
+            waitNanos = acquire(userBuckets, new BucketKey(lane, user), now);
+        }
+        if (waitNanos > 0) {
+            reject(response, lane, HttpStatus.TOO_MANY_REQUESTS, "rate_limited",
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1), "Too many requests, please slow down");
+            return;
+        }
+
+        long started = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            loadMonitor.recordLatency(System.nanoTime() - started);
+        }
+    }
+
+    // Drop buckets that have refilled completely; they hold no state worth keeping
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        ipBuckets.values().removeIf(bucket -> bucket.isIdle(now));
+        userBuckets.values().removeIf(bucket -> bucket.isIdle(now));
+    }
+
+    static Lane lane(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (HttpMethod.POST.matches(request.getMethod()) && path.startsWith("/bookings")) {
+            return Lane.BOOKING;
+        }
+        if (HttpMethod.GET.matches(request.getMethod()) && path.startsWith("/trips/")) {
+            return Lane.SEARCH;
+        }
+        return null;
+    }
+
+    // 0 when a token was taken, otherwise how long until one frees up
+    private long acquire(ConcurrentMap<BucketKey, TokenBucket> buckets, BucketKey key, long now) {
+        TokenBucket bucket = buckets.computeIfAbsent(key, k -> k.lane() == Lane.BOOKING
+                ? new TokenBucket(bookingRate, bookingBurst, now)
+                : new TokenBucket(searchRate, searchBurst, now));
+        return bucket.tryAcquire(now) ? 0 : Math.max(1, bucket.waitNanos(now));
+    }
+
+    private static String authenticatedUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    private void reject(HttpServletResponse response, Lane lane, HttpStatus status, String reason,
+                        long retryAfterSeconds, String message) throws IOException {
+        meterRegistry.counter("ratelimit.rejected", "lane", lane.name().toLowerCase(), "reason", reason).increment();
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"status\":" + status.value() + ",\"error\":\"" + status.getReasonPhrase()
+                + "\",\"message\":\"" + message + "\"}");
+    }
+}
@@ -0,0 +1,44 @@
+package com.busreservation.bus_reservation.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is one "theoretical arrival time",
+ * so taking a token is a single compare-and-set. {@code ratePerSecond} tokens refill per second,
+ * up to {@code burst} banked.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        this.intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.toleranceNanos = intervalNanos * burst;
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long next = Math.max(tat, nowNanos) + intervalNanos;
+            if (next - nowNanos > toleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return true;
+            }
+        }
+    }
+
+    // Nanoseconds until the next token frees up; 0 when one is available
+    long waitNanos(long nowNanos) {
+        return Math.max(0, theoreticalArrival.get() + intervalNanos - toleranceNanos - nowNanos);
+    }
+
+    // Fully refilled, so dropping it loses nothing
+    boolean isIdle(long nowNanos) {
+        return theoreticalArrival.get() <= nowNanos;
+    }
+}
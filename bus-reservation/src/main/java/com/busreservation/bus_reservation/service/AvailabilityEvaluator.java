@@ -0,0 +1,122 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.config.ThreadFactories;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Seat counts for the candidates of one search, in the order given.
+ * Counts still cached are read in place. Trips to recount whose occupancy is not in memory (cold, or dropped
+ * with its date) are loaded together, one bookings query per date, on a bounded pool under a per-request
+ * deadline. A trip whose occupancy is not in memory by then comes back as {@code null}, "unknown", and is
+ * never loaded on its own from the searching thread; the load keeps going, so the next search finds it.
+ * A failed load or count also degrades to unknown instead of failing the search.
+ */
+@Component
+public class AvailabilityEvaluator {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityEvaluator.class);
+
+    private final SeatOccupancyService seatOccupancyService;
+    private final long deadlineNanos;
+    private final ThreadPoolExecutor executor;
+    private final Timer loadTimer;
+    private final Counter timeouts;
+    private final Counter failures;
+
+    public AvailabilityEvaluator(SeatOccupancyService seatOccupancyService, MeterRegistry meterRegistry,
+                                 @Value("${app.search.availability.threads:4}") int threads,
+                                 @Value("${app.search.availability.deadline-ms:300}") long deadlineMs,
+                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.seatOccupancyService = seatOccupancyService;
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        // Bounded either way: the limit protects the connection pool, not the threads.
+        // A search that finds the queue full does not wait; its cold trips show as unknown.
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 16), ThreadFactories.named("search-availability-", virtualThreads),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.loadTimer = Timer.builder("search.phase")
+                .description("Time spent in one phase of a trip search")
+                .tag("phase", "preload")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("search.availability.timeouts")
+                .description("Trips shown with unknown availability because their occupancy load missed the search deadline")
+                .register(meterRegistry);
+        this.failures = Counter.builder("search.availability.failures")
+                .description("Trips shown with unknown availability because their occupancy load or seat count failed")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Available seats per trip, in the order given; {@code null} where availability is unknown.
+     */
+    public Integer[] availableSeats(List<SearchResultCache.CachedTrip> trips) {
+        Map<LocalDate, Set<Long>> cold = new HashMap<>();
+        for (SearchResultCache.CachedTrip trip : trips) {
+            if (trip.needsRecount() && !seatOccupancyService.isLoaded(trip.match().trip().tripId(), trip.date())) {
+                cold.computeIfAbsent(trip.date(), d -> new LinkedHashSet<>()).add(trip.match().trip().tripId());
+            }
+        }
+        if (!cold.isEmpty()) {
+            loadWithinDeadline(cold);
+        }
+
+        Integer[] seats = new Integer[trips.size()];
+        for (int i = 0; i < trips.size(); i++) {
+            SearchResultCache.CachedTrip trip = trips.get(i);
+            Long tripId = trip.match().trip().tripId();
+            // Still cold: the load timed out or failed, and counting now would query this trip alone
+            if (trip.needsRecount() && !seatOccupancyService.isLoaded(tripId, trip.date())) {
+                continue;
+            }
+            try {
+                seats[i] = trip.availableSeats(seatOccupancyService);
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Seat count failed for trip {}", tripId, e);
+            }
+        }
+        return seats;
+    }
+
+    private void loadWithinDeadline(Map<LocalDate, Set<Long>> cold) {
+        int trips = cold.values().stream().mapToInt(Set::size).sum();
+        long started = System.nanoTime();
+        Future<?> load;
+        try {
+            load = executor.submit(() -> cold.forEach((date, tripIds) -> seatOccupancyService.preload(tripIds, date)));
+        } catch (RejectedExecutionException e) {
+            failures.increment(trips);
+            return;
+        }
+
+        try {
+            load.get(deadlineNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment(trips);
+        } catch (ExecutionException e) {
+            failures.increment(trips);
+            log.warn("Occupancy load for {} trips failed", trips, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            loadTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+}
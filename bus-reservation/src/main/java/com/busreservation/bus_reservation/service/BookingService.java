@@ -5,10 +5,12 @@ import com.busreservation.bus_reservation.exception.BadRequestException;
 import com.busreservation.bus_reservation.exception.NotFoundException;
 import com.busreservation.bus_reservation.model.*;
 import com.busreservation.bus_reservation.repository.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -21,59 +23,133 @@ public class BookingService {
     private final BookingRepository bookingRepository;
     private final TripRepository tripRepository;
     private final TripStopRepository tripStopRepository;
-    private final FareRateRepository fareRateRepository;
+    private final FarePricingService farePricingService;
     private final UserRepository userRepository;
+    private final SeatOccupancyService seatOccupancyService;
+    private final PnrGenerator pnrGenerator;
+    private final SeatHoldService seatHoldService;
+    private final int maxGroupSeats;
+
+    private record Segment(Trip trip, TripStop fromStop, TripStop toStop) {
+    }
 
     public BookingService(BookingRepository bookingRepository, TripRepository tripRepository,
-                         TripStopRepository tripStopRepository, FareRateRepository fareRateRepository,
-                         UserRepository userRepository) {
+                         TripStopRepository tripStopRepository, FarePricingService farePricingService,
+                         UserRepository userRepository, SeatOccupancyService seatOccupancyService,
+                         PnrGenerator pnrGenerator, SeatHoldService seatHoldService,
+                         @Value("${app.holds.max-seats:6}") int maxGroupSeats) {
         this.bookingRepository = bookingRepository;
         this.tripRepository = tripRepository;
         this.tripStopRepository = tripStopRepository;
-        this.fareRateRepository = fareRateRepository;
+        this.farePricingService = farePricingService;
         this.userRepository = userRepository;
+        this.seatOccupancyService = seatOccupancyService;
+        this.pnrGenerator = pnrGenerator;
+        this.seatHoldService = seatHoldService;
+        this.maxGroupSeats = maxGroupSeats;
     }
 
-    @Transactional
+    // Read committed: the conflict check after the trip lock must see bookings committed while it waited
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public BookingDto.BookingResponse createBooking(String userEmail, BookingDto.BookingRequest request) {
-        // Validate future date and time
-        validateBookingDateTime(request.getDate(), request.getTripId(), request.getFromStopSeq());
+        BookingDto.SeatSelection selection = BookingDto.SeatSelection.builder()
+                .seatNo(request.getSeatNo())
+                .passenger(request.getPassenger())
+                .build();
 
-        Trip trip = tripRepository.findById(request.getTripId())
-                .orElseThrow(() -> new NotFoundException("Trip not found"));
+        return bookSeats(userEmail, request.getTripId(), request.getDate(),
+                request.getFromStopSeq(), request.getToStopSeq(), List.of(selection), request.getHoldId()).get(0);
+    }
 
-        if (!"Running".equals(trip.getStatus())) {
-            throw new BadRequestException("Trip is not available for booking (maintenance)");
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public BookingDto.GroupBookingResponse createGroupBooking(String userEmail, BookingDto.GroupBookingRequest request) {
+        if (request.getSeats() == null || request.getSeats().isEmpty()) {
+            throw new BadRequestException("At least one seat is required");
+        }
+        // Same cap as a hold, so a group never claims more seats than it could have held first
+        if (request.getSeats().size() > maxGroupSeats) {
+            throw new BadRequestException("At most " + maxGroupSeats + " seats can be booked at once");
         }
 
-        // Get trip stops
-        List<TripStop> stops = tripStopRepository.findByTripIdOrderBySeqNoAsc(request.getTripId());
-        TripStop fromStop = stops.stream()
-                .filter(s -> s.getSeqNo().equals(request.getFromStopSeq()))
-                .findFirst()
-                .orElseThrow(() -> new NotFoundException("From stop not found"));
-        
-        TripStop toStop = stops.stream()
-                .filter(s -> s.getSeqNo().equals(request.getToStopSeq()))
-                .findFirst()
-                .orElseThrow(() -> new NotFoundException("To stop not found"));
+        List<BookingDto.BookingResponse> bookings = bookSeats(userEmail, request.getTripId(), request.getDate(),
+                request.getFromStopSeq(), request.getToStopSeq(), request.getSeats(), request.getHoldId());
 
-        if (fromStop.getSeqNo() >= toStop.getSeqNo()) {
-            throw new BadRequestException("Invalid journey segment");
+        return BookingDto.GroupBookingResponse.builder()
+                .bookings(bookings)
+                .totalFare(bookings.stream().mapToInt(BookingDto.BookingResponse::getFareAmount).sum())
+                .build();
+    }
+
+    /**
+     * Holds seats on a segment while the customer enters passenger details; book them with the returned holdId.
+     * Not transactional: the seats are claimed for as long as the hold lives, not for one transaction.
+     * Guests' holds are limited per client address, signed-in users' per user.
+     */
+    public BookingDto.HoldResponse holdSeats(String userEmail, String clientAddress, BookingDto.HoldRequest request) {
+        if (request.getSeatNos() == null || request.getSeatNos().isEmpty()) {
+            throw new BadRequestException("At least one seat is required");
+        }
+        resolveSegment(request.getTripId(), request.getDate(), request.getFromStopSeq(), request.getToStopSeq(), false);
+
+        String client = userEmail != null ? userEmail : "ip:" + clientAddress;
+        SeatHoldService.SeatHold hold = seatHoldService.hold(userEmail, client, request.getTripId(), request.getDate(),
+                request.getSeatNos(), request.getFromStopSeq(), request.getToStopSeq());
+
+        return BookingDto.HoldResponse.builder()
+                .holdId(hold.holdId())
+                .tripId(hold.tripId())
+                .date(hold.date())
+                .fromStopSeq(hold.fromSeq())
+                .toStopSeq(hold.toSeq())
+                .seatNos(hold.seatNos())
+                .expiresAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(hold.expiresAtMillis()),
+                        ZoneId.of("Asia/Kolkata")))
+                .build();
+    }
+
+    public void releaseHold(String userEmail, String holdId) {
+        seatHoldService.release(holdId, userEmail);
+    }
+
+    // Validates the segment and availability once, claims every seat atomically and inserts all rows in one batch
+    private List<BookingDto.BookingResponse> bookSeats(String userEmail, Long tripId, LocalDate date,
+                                                       Integer fromStopSeq, Integer toStopSeq,
+                                                       List<BookingDto.SeatSelection> selections, String holdId) {
+        // A repeated seat is a malformed request, not a lost race, so it never reaches the seat claim
+        List<String> seatNos = selections.stream().map(BookingDto.SeatSelection::getSeatNo).toList();
+        Set<String> distinct = new HashSet<>();
+        for (String seatNo : seatNos) {
+            if (seatNo == null || seatNo.isBlank()) {
+                throw new BadRequestException("Seat number is required");
+            }
+            if (!distinct.add(seatNo)) {
+                throw new BadRequestException("Seat " + seatNo + " is listed more than once");
+            }
         }
 
-        // Check seat availability for the requested segment
-        Set<String> bookedSeats = getBookedSeatsForSegment(
-                request.getTripId(), request.getDate(), 
-                request.getFromStopSeq(), request.getToStopSeq());
+        Segment segment = resolveSegment(tripId, date, fromStopSeq, toStopSeq, true);
+        Trip trip = segment.trip();
+        TripStop fromStop = segment.fromStop();
+        TripStop toStop = segment.toStop();
 
-        if (bookedSeats.contains(request.getSeatNo())) {
-            throw new BadRequestException("Seat " + request.getSeatNo() + " is not available");
+        // Claim all seats for the requested segment (or take over the held ones); released again on rollback
+        if (holdId != null) {
+            seatHoldService.convert(holdId, userEmail, tripId, date, seatNos, fromStopSeq, toStopSeq);
+        } else {
+            seatOccupancyService.claimSeats(tripId, date, seatNos, fromStopSeq, toStopSeq);
+        }
+
+        // The claim above only knows this node's bookings. With the trip row locked, committed rows from any
+        // node are final for this transaction; the claim is released again if one of them overlaps.
+        List<String> soldElsewhere = bookingRepository.findConflictingSeatNos(tripId, date, seatNos,
+                fromStopSeq, toStopSeq);
+        if (!soldElsewhere.isEmpty()) {
+            throw new BadRequestException("Seat " + soldElsewhere.get(0) + " is not available");
         }
 
         // Calculate fare
         int distanceKm = toStop.getCumulativeKm() - fromStop.getCumulativeKm();
-        int fareAmount = calculateFare(trip.getBus().getBusType(), distanceKm);
+        int fareAmount = farePricingService.calculateFare(trip.getBus().getBusType(), distanceKm);
 
         // Get user (optional for guest bookings)
         User user = null;
@@ -81,80 +157,143 @@ public class BookingService {
             user = userRepository.findByEmail(userEmail).orElse(null);
         }
 
-        // Create booking
-        String pnr = generatePNR();
-        Booking booking = Booking.builder()
-                .pnr(pnr)
-                .trip(trip)
-                .bookingDate(request.getDate())
-                .seatNo(request.getSeatNo())
-                .fromStopSeq(request.getFromStopSeq())
-                .toStopSeq(request.getToStopSeq())
-                .passengerName(request.getPassenger().getName())
-                .passengerPhone(request.getPassenger().getPhone())
-                .fareAmount(fareAmount)
-                .status("CONFIRMED")
-                .bookedAt(LocalDateTime.now(ZoneId.of("Asia/Kolkata")))
-                .user(user)
-                .build();
+        // Create bookings
+        LocalDateTime bookedAt = LocalDateTime.now(ZoneId.of("Asia/Kolkata"));
+        List<Booking> bookings = new ArrayList<>(selections.size());
+        for (BookingDto.SeatSelection selection : selections) {
+            bookings.add(Booking.builder()
+                    .pnr(pnrGenerator.next())
+                    .trip(trip)
+                    .bookingDate(date)
+                    .seatNo(selection.getSeatNo())
+                    .fromStopSeq(fromStopSeq)
+                    .toStopSeq(toStopSeq)
+                    .passengerName(selection.getPassenger().getName())
+                    .passengerPhone(selection.getPassenger().getPhone())
+                    .fareAmount(fareAmount)
+                    .status("CONFIRMED")
+                    .bookedAt(bookedAt)
+                    .user(user)
+                    .build());
+        }
 
-        booking = bookingRepository.save(booking);
+        // Sequence ids let Hibernate send these as one JDBC batch
+        bookings = bookingRepository.saveAll(bookings);
 
-        // Build booking details
-        BookingDto.BookingDetails details = BookingDto.BookingDetails.builder()
-                .busId(trip.getBus().getBusId())
-                .busType(trip.getBus().getBusType())
-                .travelDate(request.getDate())
-                .fromStop(fromStop.getStopName())
-                .toStop(toStop.getStopName())
-                .seatNo(request.getSeatNo())
-                .passenger(request.getPassenger())
-                .build();
+        List<BookingDto.BookingResponse> responses = new ArrayList<>(bookings.size());
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
 
-        return BookingDto.BookingResponse.builder()
-                .bookingId(booking.getBookingId())
-                .pnr(booking.getPnr())
-                .status(booking.getStatus())
-                .fareAmount(booking.getFareAmount())
-                .bookedAt(booking.getBookedAt())
-                .details(details)
-                .build();
+            // Build booking details
+            BookingDto.BookingDetails details = BookingDto.BookingDetails.builder()
+                    .busId(trip.getBus().getBusId())
+                    .busType(trip.getBus().getBusType())
+                    .travelDate(date)
+                    .fromStop(fromStop.getStopName())
+                    .toStop(toStop.getStopName())
+                    .seatNo(booking.getSeatNo())
+                    .passenger(selections.get(i).getPassenger())
+                    .build();
+
+            responses.add(BookingDto.BookingResponse.builder()
+                    .bookingId(booking.getBookingId())
+                    .pnr(booking.getPnr())
+                    .status(booking.getStatus())
+                    .fareAmount(booking.getFareAmount())
+                    .bookedAt(booking.getBookedAt())
+                    .details(details)
+                    .build());
+        }
+        return responses;
     }
 
-    public BookingDto.BookingResponse getBookingByPnr(String pnr) {
-        Booking booking = bookingRepository.findByPnr(pnr)
+    /**
+     * Cancels a confirmed booking. Only its owner (or an admin) may cancel; guest bookings are admin-only.
+     * The seat segment goes back on sale when the transaction commits.
+     */
+    @Transactional
+    public BookingDto.BookingResponse cancelBooking(String userEmail, boolean admin, String pnr) {
+        Booking booking = bookingRepository.findWithUserByPnr(pnr)
                 .orElseThrow(() -> new NotFoundException("Booking not found"));
 
-        Trip trip = booking.getTrip();
-        List<TripStop> stops = tripStopRepository.findByTripIdOrderBySeqNoAsc(trip.getId());
-        
+        boolean owner = booking.getUser() != null && booking.getUser().getEmail().equals(userEmail);
+        if (!owner && !admin) {
+            // Same answer as an unknown PNR, so PNRs cannot be probed
+            throw new NotFoundException("Booking not found");
+        }
+        if (booking.getBookingDate().isBefore(LocalDate.now(ZoneId.of("Asia/Kolkata")))) {
+            throw new BadRequestException("Cannot cancel a past journey");
+        }
+        if (bookingRepository.cancelConfirmed(booking.getBookingId()) == 0) {
+            throw new BadRequestException("Booking is already cancelled");
+        }
+
+        seatOccupancyService.releaseOnCommit(booking.getBookingDate(), List.of(new BookedSeatSegment(
+                booking.getTrip().getId(), booking.getSeatNo(), booking.getFromStopSeq(), booking.getToStopSeq())));
+
+        return getBookingByPnr(pnr);
+    }
+
+    // Validates date, trip and segment; shared by bookings and holds. Bookings lock the trip row
+    private Segment resolveSegment(Long tripId, LocalDate date, Integer fromStopSeq, Integer toStopSeq,
+                                   boolean lockTrip) {
+        // Validate future date and time
+        validateBookingDateTime(date, tripId, fromStopSeq);
+
+        Trip trip = (lockTrip ? tripRepository.findByIdForUpdate(tripId) : tripRepository.findById(tripId))
+                .orElseThrow(() -> new NotFoundException("Trip not found"));
+
+        if (!"Running".equals(trip.getStatus())) {
+            throw new BadRequestException("Trip is not available for booking (maintenance)");
+        }
+        // Trips are materialized per calendar date; a trip id is only bookable on its own date
+        if (!date.equals(trip.getTravelDate())) {
+            throw new BadRequestException("Trip does not run on " + date);
+        }
+
+        // Get trip stops
+        List<TripStop> stops = tripStopRepository.findByTripIdOrderBySeqNoAsc(tripId);
         TripStop fromStop = stops.stream()
-                .filter(s -> s.getSeqNo().equals(booking.getFromStopSeq()))
-                .findFirst().orElse(null);
+                .filter(s -> s.getSeqNo().equals(fromStopSeq))
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("From stop not found"));
         
         TripStop toStop = stops.stream()
-                .filter(s -> s.getSeqNo().equals(booking.getToStopSeq()))
-                .findFirst().orElse(null);
+                .filter(s -> s.getSeqNo().equals(toStopSeq))
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("To stop not found"));
+
+        if (fromStop.getSeqNo() >= toStop.getSeqNo()) {
+            throw new BadRequestException("Invalid journey segment");
+        }
+        return new Segment(trip, fromStop, toStop);
+    }
+
+    // Single projection query; no entities are loaded, so nothing lazy can fire afterwards
+    @Transactional(readOnly = true)
+    public BookingDto.BookingResponse getBookingByPnr(String pnr) {
+        BookingView booking = bookingRepository.findViewByPnr(pnr)
+                .orElseThrow(() -> new NotFoundException("Booking not found"));
 
         BookingDto.BookingDetails details = BookingDto.BookingDetails.builder()
-                .busId(trip.getBus().getBusId())
-                .busType(trip.getBus().getBusType())
-                .travelDate(booking.getBookingDate())
-                .fromStop(fromStop != null ? fromStop.getStopName() : "Unknown")
-                .toStop(toStop != null ? toStop.getStopName() : "Unknown")
-                .seatNo(booking.getSeatNo())
+                .busId(booking.busId())
+                .busType(booking.busType())
+                .travelDate(booking.travelDate())
+                .fromStop(booking.fromStop() != null ? booking.fromStop() : "Unknown")
+                .toStop(booking.toStop() != null ? booking.toStop() : "Unknown")
+                .seatNo(booking.seatNo())
                 .passenger(BookingDto.PassengerInfo.builder()
-                        .name(booking.getPassengerName())
-                        .phone(booking.getPassengerPhone())
+                        .name(booking.passengerName())
+                        .phone(booking.passengerPhone())
                         .build())
                 .build();
 
         return BookingDto.BookingResponse.builder()
-                .bookingId(booking.getBookingId())
-                .pnr(booking.getPnr())
-                .status(booking.getStatus())
-                .fareAmount(booking.getFareAmount())
-                .bookedAt(booking.getBookedAt())
+                .bookingId(booking.bookingId())
+                .pnr(booking.pnr())
+                .status(booking.status())
+                .fareAmount(booking.fareAmount())
+                .bookedAt(booking.bookedAt())
                 .details(details)
                 .build();
     }
@@ -180,34 +319,4 @@ public class BookingService {
             }
         }
     }
-
-    private Set<String> getBookedSeatsForSegment(Long tripId, LocalDate date, Integer fromSeq, Integer toSeq) {
-        List<Booking> bookings = bookingRepository.findByTripIdAndBookingDateAndStatus(tripId, date, "CONFIRMED");
-        Set<String> bookedSeats = new HashSet<>();
-
-        if (requestFromSeq == null || requestToSeq == null) {
-            return bookedSeats;
-
-            // Check if segments overlap: [fromSeq, toSeq) overlaps with [booking.fromSeq, booking.toSeq)
-            if (fromSeq < booking.getToStopSeq() && booking.getFromStopSeq() < toSeq) {
-                bookedSeats.add(booking.getSeatNo());
-            }
-        }
-
-        return bookedSeats;
-    }
-
-    private int calculateFare(String busType, int distanceKm) {
-        FareRate fareRate = fareRateRepository.findById(busType).orElse(null);
-        if (fareRate == null) {
-            return distanceKm * 2; // Default ₹2 per km
-        }
-        
-        BigDecimal fare = fareRate.getRatePerKm().multiply(BigDecimal.valueOf(distanceKm));
-        return fare.intValue();
-    }
-
-    private String generatePNR() {
-        return "MGT" + System.currentTimeMillis() + String.format("%03d", new Random().nextInt(1000));
-    }
 }
\ No newline at end of file
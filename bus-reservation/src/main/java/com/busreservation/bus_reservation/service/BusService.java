@@ -7,77 +7,70 @@ import com.busreservation.bus_reservation.repository.*;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * The bus-centric API of the customer frontend, served from the same data as trip search.
+ * A "bus" here is a dated trip and its stop ids are the trip's stop sequence numbers.
+ * Routes come from the in-memory route index and seats from {@link SeatOccupancyService},
+ * so no request runs a query per bus.
+ */
 @Service
 public class BusService {
 
-    private final BusRepository busRepository;
-    private final StopRepository stopRepository;
     private final CityRepository cityRepository;
-    private final TripRepository tripRepository;
-    private final PassengerRepository passengerRepository;
-    private final BookingRepository bookingRepository;
-
-    public BusService(BusRepository busRepository, StopRepository stopRepository, 
-                     CityRepository cityRepository, TripRepository tripRepository,
-                     PassengerRepository passengerRepository, BookingRepository bookingRepository) {
-        this.busRepository = busRepository;
-        this.stopRepository = stopRepository;
+    private final TripStopRepository tripStopRepository;
+    private final RouteIndexService routeIndexService;
+    private final SeatOccupancyService seatOccupancyService;
+    private final FarePricingService farePricingService;
+
+    public BusService(CityRepository cityRepository, TripStopRepository tripStopRepository,
+                     RouteIndexService routeIndexService, SeatOccupancyService seatOccupancyService,
+                     FarePricingService farePricingService) {
         this.cityRepository = cityRepository;
-        this.tripRepository = tripRepository;
-        this.passengerRepository = passengerRepository;
-        this.bookingRepository = bookingRepository;
+        this.tripStopRepository = tripStopRepository;
+        this.routeIndexService = routeIndexService;
+        this.seatOccupancyService = seatOccupancyService;
+        this.farePricingService = farePricingService;
     }
 
     public BusDtos.BusSearchResponse searchBuses(Long fromCityId, Long toCityId, LocalDate date, Integer seats) {
-        City fromCity = cityRepository.findById(fromCityId)
+        // Both cities in one query
+        Map<Long, City> cities = cityRepository.findAllById(List.of(fromCityId, toCityId)).stream()
+                .collect(Collectors.toMap(City::getId, Function.identity()));
+        City fromCity = Optional.ofNullable(cities.get(fromCityId))
                 .orElseThrow(() -> new NotFoundException("From city not found"));
-        City toCity = cityRepository.findById(toCityId)
+        City toCity = Optional.ofNullable(cities.get(toCityId))
                 .orElseThrow(() -> new NotFoundException("To city not found"));
 
-        List<Bus> allBuses = busRepository.findAll();
-        List<BusDtos.BusSearchResult> results = new ArrayList<>();
+        List<RouteIndex.RouteMatch> matches = routeIndexService.findRoutes(date, fromCity.getName(), toCity.getName());
+        // One bookings query for every matched trip instead of one per bus
+        seatOccupancyService.preload(matches.stream().map(m -> m.trip().tripId()).toList(), date);
 
-        for (Bus bus : allBuses) {
-            List<Stop> stops = stopRepository.findByBusIdOrderBySequenceAsc(bus.getId());
-            
-            Stop fromStop = stops.stream()
-                    .filter(s -> s.getName().equalsIgnoreCase(fromCity.getName()))
-                    .findFirst().orElse(null);
-            Stop toStop = stops.stream()
-                    .filter(s -> s.getName().equalsIgnoreCase(toCity.getName()))
-                    .findFirst().orElse(null);
-
-            if (fromStop != null && toStop != null && fromStop.getSequence() < toStop.getSequence()) {
-                // Get trip for this bus on the specified date
-                List<Trip> trips = tripRepository.findByBusIdAndTripDate(bus.getId(), date);
-                if (!trips.isEmpty()) {
-                    Trip trip = trips.get(0);
-                    
-                    // Calculate available seats for this segment
-                    int availableSeats = calculateAvailableSeats(bus.getId(), date, fromStop.getId(), toStop.getId(), bus.getTotalSeats());
-                    
-                    if (availableSeats >= seats) {
-                        String route = fromCity.getName() + " → " + toCity.getName();
-                        String duration = calculateDuration(trip.getDepartureTime(), trip.getArrivalTime());
-                        
-                        results.add(BusDtos.BusSearchResult.builder()
-                                .id(bus.getId())
-                                .name(bus.getName())
-                                .type(bus.getType())
-                                .route(route)
-                                .departureTime(trip.getDepartureTime())
-                                .arrivalTime(trip.getArrivalTime())
-                                .duration(duration)
-                                .availableSeats(availableSeats)
-                                .price(trip.getPrice())
-                                .build());
-                    }
-                }
+        List<BusDtos.BusSearchResult> results = new ArrayList<>();
+        String route = fromCity.getName() + " → " + toCity.getName();
+        for (RouteIndex.RouteMatch match : matches) {
+            RouteIndex.TripEntry trip = match.trip();
+            int availableSeats = seatOccupancyService.availableSeats(trip.tripId(), date, trip.capacity(),
+                    match.from().seqNo(), match.to().seqNo());
+            if (availableSeats < seats) {
+                continue;
             }
+
+            int distanceKm = match.to().cumulativeKm() - match.from().cumulativeKm();
+            results.add(BusDtos.BusSearchResult.builder()
+                    .id(trip.tripId())
+                    .name(trip.busId())
+                    .type(trip.busType())
+                    .route(route)
+                    .departureTime(match.from().departTime())
+                    .arrivalTime(match.to().arriveTime())
+                    .duration(calculateDuration(match.from().departTime(), match.to().arriveTime()))
+                    .availableSeats(availableSeats)
+                    .price(farePricingService.calculateFare(trip.busType(), distanceKm))
+                    .build());
         }
 
         return BusDtos.BusSearchResponse.builder()
@@ -89,54 +82,47 @@ public class BusService {
     }
 
     public BusDtos.BusDetailsResponse getBusDetails(Long busId) {
-        Bus bus = busRepository.findById(busId)
-                .orElseThrow(() -> new NotFoundException("Bus not found"));
-
-        List<Stop> stops = stopRepository.findByBusIdOrderBySequenceAsc(busId);
-        List<Trip> trips = tripRepository.findByBusIdAndTripDate(busId, LocalDate.now());
-        
-        Trip trip = trips.isEmpty() ? null : trips.get(0);
-        
+        RouteIndex.TripEntry trip = findTrip(busId);
+        List<TripStop> stops = tripStopRepository.findByTripIdOrderBySeqNoAsc(busId);
+
         List<BusDtos.StopInfo> stopInfos = stops.stream()
                 .map(stop -> BusDtos.StopInfo.builder()
-                        .id(stop.getId())
-                        .name(stop.getName())
-                        .sequence(stop.getSequence())
-                        .arrivalTime(trip != null ? trip.getDepartureTime().toString() : "N/A")
+                        .id(stop.getSeqNo().longValue())
+                        .name(stop.getStopName())
+                        .sequence(stop.getSeqNo())
+                        .arrivalTime(Objects.toString(
+                                stop.getArriveTime() != null ? stop.getArriveTime() : stop.getDepartTime(), "N/A"))
                         .build())
                 .collect(Collectors.toList());
 
-        String route = stops.isEmpty() ? "" : 
-                stops.get(0).getName() + " → " + stops.get(stops.size() - 1).getName();
-        
-        String duration = trip != null ? calculateDuration(trip.getDepartureTime(), trip.getArrivalTime()) : "N/A";
+        String route = stops.isEmpty() ? "" :
+                stops.get(0).getStopName() + " → " + stops.get(stops.size() - 1).getStopName();
+        int totalKm = stops.isEmpty() ? 0 : stops.get(stops.size() - 1).getCumulativeKm();
 
         return BusDtos.BusDetailsResponse.builder()
-                .id(bus.getId())
-                .name(bus.getName())
-                .type(bus.getType())
+                .id(trip.tripId())
+                .name(trip.busId())
+                .type(trip.busType())
                 .route(route)
-                .departureTime(trip != null ? trip.getDepartureTime() : null)
-                .arrivalTime(trip != null ? trip.getArrivalTime() : null)
-                .duration(duration)
-                .totalSeats(bus.getTotalSeats())
-                .price(trip != null ? trip.getPrice() : 500)
+                .departureTime(trip.departureTime())
+                .arrivalTime(trip.arrivalTime())
+                .duration(calculateDuration(trip.departureTime(), trip.arrivalTime()))
+                .totalSeats(trip.capacity())
+                .price(farePricingService.calculateFare(trip.busType(), totalKm))
                 .amenities(Arrays.asList("Air Conditioning", "WiFi", "Charging Points", "Entertainment"))
                 .stops(stopInfos)
                 .build();
     }
 
     public BusDtos.SeatAvailabilityResponse getSeatAvailability(Long busId, Long fromStopId, Long toStopId, LocalDate date) {
-        Bus bus = busRepository.findById(busId)
-                .orElseThrow(() -> new NotFoundException("Bus not found"));
+        RouteIndex.TripEntry trip = findTrip(busId);
+        TripOccupancy occupancy = seatOccupancyService.get(busId, date);
 
         List<BusDtos.SeatInfo> seats = new ArrayList<>();
-        Set<Integer> bookedSeats = getBookedSeatsForSegment(busId, date, fromStopId, toStopId);
-
-        for (int seatNo = 1; seatNo <= bus.getTotalSeats(); seatNo++) {
+        for (int seatNo = 1; seatNo <= trip.capacity(); seatNo++) {
             seats.add(BusDtos.SeatInfo.builder()
                     .seatNo(seatNo)
-                    .booked(bookedSeats.contains(seatNo))
+                    .booked(!occupancy.isFree(String.valueOf(seatNo), fromStopId.intValue(), toStopId.intValue()))
                     .build());
         }
 
@@ -149,55 +135,23 @@ public class BusService {
                 .build();
     }
 
-    private int calculateAvailableSeats(Long busId, LocalDate date, Long fromStopId, Long toStopId, int totalSeats) {
-        Set<Integer> bookedSeats = getBookedSeatsForSegment(busId, date, fromStopId, toStopId);
-        return totalSeats - bookedSeats.size();
-    }
-
-    private Set<Integer> getBookedSeatsForSegment(Long busId, LocalDate date, Long fromStopId, Long toStopId) {
-        // Get all bookings for this bus on this date
-        List<Booking> bookings = bookingRepository.findByBusIdAndTripDate(busId, date);
-
-        Set<Integer> bookedSeats = new HashSet<>();
-        
-        // Get stop sequences for overlap calculation
-        Map<Long, Integer> stopSequences = stopRepository.findByBusIdOrderBySequenceAsc(busId)
-                .stream()
-                .collect(Collectors.toMap(Stop::getId, Stop::getSequence));
-
-        Integer requestFromSeq = stopSequences.get(fromStopId);
-        Integer requestToSeq = stopSequences.get(toStopId);
-
-        if (requestFromSeq == null || requestToSeq == null) {
-            return bookedSeats;
-        }
-
-        for (Booking booking : bookings) {
-            Integer bookingFromSeq = stopSequences.get(booking.getFromStop().getId());
-            Integer bookingToSeq = stopSequences.get(booking.getToStop().getId());
-
-            if (bookingFromSeq != null && bookingToSeq != null) {
-                // Check if segments overlap
-                if (requestFromSeq < bookingToSeq && bookingFromSeq < requestToSeq) {
-                    // Add all passenger seats from this booking
-                    booking.getPassengers().forEach(passenger -> 
-                            bookedSeats.add(passenger.getSeatNo()));
-                }
-            }
+    private RouteIndex.TripEntry findTrip(Long busId) {
+        RouteIndex.TripEntry trip = routeIndexService.getTrip(busId);
+        if (trip == null) {
+            throw new NotFoundException("Bus not found");
         }
-
-        return bookedSeats;
+        return trip;
     }
 
     private String calculateDuration(java.time.LocalTime departure, java.time.LocalTime arrival) {
         if (departure == null || arrival == null) return "N/A";
-        
+
         long minutes = java.time.Duration.between(departure, arrival).toMinutes();
         if (minutes < 0) minutes += 24 * 60; // Handle next day arrival
-        
+
         long hours = minutes / 60;
         long mins = minutes % 60;
-        
+
         return String.format("%dh %dm", hours, mins);
     }
-}
\ No newline at end of file
+}
@@ -1,126 +1,301 @@
 package com.busreservation.bus_reservation.service;
 
+import com.busreservation.bus_reservation.config.ThreadFactories;
 import com.busreservation.bus_reservation.dto.ExcelImportDto;
+import com.busreservation.bus_reservation.event.FareRatesChangedEvent;
+import com.busreservation.bus_reservation.event.TripsImportedEvent;
 import com.busreservation.bus_reservation.model.*;
 import com.busreservation.bus_reservation.repository.*;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
 public class ExcelImportService {
 
-    private final BusRepository busRepository;
-    private final TripRepository tripRepository;
-    private final TripStopRepository tripStopRepository;
-    private final SeatRepository seatRepository;
+    private static final Logger log = LoggerFactory.getLogger(ExcelImportService.class);
+
     private final FareRateRepository fareRateRepository;
     private final DayCalendarRepository dayCalendarRepository;
+    private final TripImportWriter tripImportWriter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int importBatchSize;
+    private final int parseThreads;
+    private final ExecutorService parseExecutor;
+    private final ExecutorService writeExecutor;
+
+    private static final String MASTER_PLAN_SHEET = "31Day_Master_Plan";
 
     // Pattern for parsing stops: StopName(arrive-depart)[km]
     private static final Pattern STOP_PATTERN = Pattern.compile(
         "([^(]+)(?:\\(([^)]+)\\))?\\[(\\d+)km\\]"
     );
 
-    public ExcelImportService(BusRepository busRepository, TripRepository tripRepository,
-                             TripStopRepository tripStopRepository, SeatRepository seatRepository,
-                             FareRateRepository fareRateRepository, DayCalendarRepository dayCalendarRepository) {
-        this.busRepository = busRepository;
-        this.tripRepository = tripRepository;
-        this.tripStopRepository = tripStopRepository;
-        this.seatRepository = seatRepository;
+    public ExcelImportService(FareRateRepository fareRateRepository, DayCalendarRepository dayCalendarRepository,
+                             TripImportWriter tripImportWriter, ApplicationEventPublisher eventPublisher,
+                             PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                             @Value("${app.import.batch-size:1000}") int importBatchSize,
+                             @Value("${app.import.parse-threads:0}") int parseThreads,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
         this.fareRateRepository = fareRateRepository;
         this.dayCalendarRepository = dayCalendarRepository;
+        this.tripImportWriter = tripImportWriter;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.importBatchSize = importBatchSize;
+        this.parseThreads = parseThreads > 0 ? parseThreads : Runtime.getRuntime().availableProcessors();
+        // Parsing is CPU-bound and stays on a core-sized platform pool; writers mostly wait on JDBC
+        this.parseExecutor = Executors.newFixedThreadPool(this.parseThreads, new CustomizableThreadFactory("import-parse-"));
+        this.writeExecutor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(ThreadFactories.named("import-write-", true))
+                : Executors.newCachedThreadPool(new CustomizableThreadFactory("import-write-"));
     }
 
-    @Transactional
-    public ExcelImportDto.ImportResponse importExcel(MultipartFile file) {
-        String batchId = "BATCH_" + System.currentTimeMillis();
-        List<String> warnings = new ArrayList<>();
-        List<String> errors = new ArrayList<>();
-        int totalRows = 0;
-        int successfulRows = 0;
-        int skippedRows = 0;
-        int maintenanceRows = 0;
-
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheet("31Day_Master_Plan");
-            if (sheet == null) {
-                errors.add("Sheet '31Day_Master_Plan' not found");
-                return buildErrorResponse(errors);
-            }
+    @PreDestroy
+    public void shutdown() {
+        parseExecutor.shutdownNow();
+        writeExecutor.shutdownNow();
+    }
 
-            // Initialize fare rates if not exists
-            initializeFareRates();
-            initializeDayCalendar();
+    /**
+     * Staged import pipeline:
+     * read (SAX, this thread) -> parse (chunks fan out over parse-threads) -> write (one thread, chunk order).
+     * Each chunk is written in its own transaction, so a failure rolls back only that chunk.
+     * The bounded queue between stages blocks the reader when parsing or writing falls behind.
+     * Progress is published through the given {@link ImportProgress}, which can also cancel the run.
+     */
+    public ExcelImportDto.ImportResponse importExcel(Path upload, ImportProgress progress) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ExcelImportDto.ImportResponse response = runImport(upload, progress);
+
+        String result = progress.isCancelled() ? "cancelled" : response.isSuccess() ? "completed" : "failed";
+        sample.stop(Timer.builder("import.duration")
+                .description("Wall time of one Excel import")
+                .tag("result", result)
+                .register(meterRegistry));
+        return response;
+    }
 
-            Row headerRow = sheet.getRow(0);
-            if (headerRow == null) {
-                errors.add("Header row not found");
-                return buildErrorResponse(errors);
-            }
+    private ExcelImportDto.ImportResponse runImport(Path upload, ImportProgress progress) {
+        ImportRun run = new ImportRun(progress, parseThreads * 2);
 
-            Map<String, Integer> columnMap = buildColumnMap(headerRow);
-            if (!validateColumns(columnMap, errors)) {
-                return buildErrorResponse(errors);
+        try {
+            Future<?> writer = writeExecutor.submit(() -> writeChunks(run));
+            boolean sheetFound;
+            try {
+                sheetFound = ExcelStreamReader.read(upload, MASTER_PLAN_SHEET, row -> acceptRow(run, row));
+                submitChunk(run);
+            } finally {
+                run.enqueue(ImportRun.END);
+                awaitWriter(writer);
             }
 
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-
-                totalRows++;
-                try {
-                    ExcelImportDto.ExcelRow excelRow = parseRow(row, columnMap);
-                    if (excelRow == null) {
-                        skippedRows++;
-                        continue;
-                    }
-
-                    if ("Maintenance".equalsIgnoreCase(excelRow.getMaintenanceStatus())) {
-                        maintenanceRows++;
-                    }
-
-                    processRow(excelRow, batchId, warnings);
-                    successfulRows++;
-
-                } catch (Exception e) {
-                    errors.add("Row " + (i + 1) + ": " + e.getMessage());
-                    skippedRows++;
+            if (!sheetFound) {
+                progress.errors.add("Sheet '" + MASTER_PLAN_SHEET + "' not found");
+                return buildErrorResponse(progress.getErrors());
+            }
+            if (run.columnMap == null) {
+                if (progress.errors.isEmpty()) {
+                    progress.errors.add("Header row not found");
                 }
+                return buildErrorResponse(progress.getErrors());
             }
 
         } catch (IOException e) {
-            errors.add("Failed to read Excel file: " + e.getMessage());
-            return buildErrorResponse(errors);
+            progress.errors.add("Failed to read Excel file: " + e.getMessage());
+            return buildErrorResponse(progress.getErrors());
+        }
+
+        // Dated trips (and through them the route index) resync now that every chunk has committed;
+        // a re-upload where nothing changed leaves them as they are
+        if (progress.getInsertedRows() + progress.getUpdatedRows() > 0) {
+            eventPublisher.publishEvent(new TripsImportedEvent(progress.getBatchId(), progress.getChangedDays()));
         }
 
         ExcelImportDto.ImportSummary summary = ExcelImportDto.ImportSummary.builder()
-                .totalRows(totalRows)
-                .successfulRows(successfulRows)
-                .skippedRows(skippedRows)
-                .maintenanceRows(maintenanceRows)
-                .batchId(batchId)
+                .totalRows(progress.getTotalRows())
+                .successfulRows(progress.getSuccessfulRows())
+                .skippedRows(progress.getSkippedRows())
+                .maintenanceRows(progress.getMaintenanceRows())
+                .insertedRows(progress.getInsertedRows())
+                .updatedRows(progress.getUpdatedRows())
+                .unchangedRows(progress.getUnchangedRows())
+                .batchId(progress.getBatchId())
                 .build();
 
+        // Chunks committed before a cancel stay written
         return ExcelImportDto.ImportResponse.builder()
-                .success(true)
-                .message("Import completed successfully")
+                .success(!progress.isCancelled())
+                .message(progress.isCancelled() ? "Import cancelled" : "Import completed successfully")
                 .summary(summary)
-                .warnings(warnings)
-                .errors(errors)
+                .warnings(progress.getWarnings())
+                .errors(progress.getErrors())
                 .build();
     }
 
+    // Reader stage: header handling, then buffer raw rows into chunks for the parse stage
+    private boolean acceptRow(ImportRun run, ExcelStreamReader.StreamedRow row) {
+        if (run.progress.isCancelled()) {
+            return false;
+        }
+
+        if (run.columnMap == null) {
+            if (row.getRowIndex() != 0) {
+                run.progress.errors.add("Header row not found");
+                return false;
+            }
+
+            // Initialize fare rates if not exists
+            transactionTemplate.executeWithoutResult(status -> {
+                initializeFareRates();
+                initializeDayCalendar();
+            });
+
+            Map<String, Integer> columnMap = buildColumnMap(row);
+            if (!validateColumns(columnMap, run.progress.errors)) {
+                return false;
+            }
+            run.columnMap = columnMap;
+            return true;
+        }
+
+        run.progress.totalRows.incrementAndGet();
+        run.rawRows.add(row);
+        if (run.rawRows.size() >= importBatchSize) {
+            submitChunk(run);
+        }
+        return true;
+    }
+
+    private void submitChunk(ImportRun run) {
+        if (run.rawRows.isEmpty()) return;
+
+        List<ExcelStreamReader.StreamedRow> rows = run.rawRows;
+        Map<String, Integer> columnMap = run.columnMap;
+        run.rawRows = new ArrayList<>(importBatchSize);
+        run.enqueue(CompletableFuture.supplyAsync(() -> parseChunk(rows, columnMap), parseExecutor));
+    }
+
+    // Parse stage: cell conversion and stop parsing, no shared state
+    private ParsedChunk parseChunk(List<ExcelStreamReader.StreamedRow> rows, Map<String, Integer> columnMap) {
+        ParsedChunk chunk = new ParsedChunk();
+        for (ExcelStreamReader.StreamedRow row : rows) {
+            int rowNumber = row.getRowIndex() + 1;
+            try {
+                ExcelImportDto.ExcelRow excelRow = parseRow(row, columnMap);
+                if (excelRow == null) {
+                    chunk.skippedRows++;
+                    continue;
+                }
+
+                if ("Maintenance".equalsIgnoreCase(excelRow.getMaintenanceStatus())) {
+                    chunk.maintenanceRows++;
+                }
+
+                if (chunk.trips.isEmpty()) {
+                    chunk.firstRow = rowNumber;
+                }
+                chunk.trips.add(processRow(excelRow, chunk.warnings));
+                chunk.lastRow = rowNumber;
+
+            } catch (Exception e) {
+                chunk.errors.add("Row " + rowNumber + ": " + e.getMessage());
+                chunk.skippedRows++;
+            }
+        }
+        return chunk;
+    }
+
+    // Write stage: takes chunks in submission order so the result is deterministic
+    private void writeChunks(ImportRun run) {
+        ImportProgress progress = run.progress;
+        while (true) {
+            CompletableFuture<ParsedChunk> next;
+            try {
+                next = run.queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (next == ImportRun.END) return;
+
+            // Keep draining so the reader is never left blocked on a full queue
+            if (progress.isCancelled()) continue;
+
+            ParsedChunk chunk;
+            try {
+                chunk = next.join();
+            } catch (Exception e) {
+                progress.errors.add("Failed to parse rows: " + e.getMessage());
+                continue;
+            }
+
+            progress.warnings.addAll(chunk.warnings);
+            progress.errors.addAll(chunk.errors);
+            progress.skippedRows.addAndGet(chunk.skippedRows);
+            progress.maintenanceRows.addAndGet(chunk.maintenanceRows);
+            countRows("skipped", chunk.skippedRows);
+            if (chunk.trips.isEmpty()) continue;
+
+            try {
+                TripImportWriter.WriteResult result =
+                        transactionTemplate.execute(status -> tripImportWriter.write(chunk.trips, progress.getBatchId()));
+                progress.successfulRows.addAndGet(chunk.trips.size());
+                progress.insertedRows.addAndGet(result.inserted());
+                progress.updatedRows.addAndGet(result.updated());
+                progress.unchangedRows.addAndGet(result.unchanged());
+                progress.changedDays.addAll(result.changedDays());
+                countRows("inserted", result.inserted());
+                countRows("updated", result.updated());
+                countRows("unchanged", result.unchanged());
+            } catch (Exception e) {
+                log.warn("Import {} failed to write rows {}-{}", progress.getBatchId(), chunk.firstRow, chunk.lastRow, e);
+                progress.errors.add("Rows " + chunk.firstRow + "-" + chunk.lastRow + ": " + e.getMessage());
+                progress.skippedRows.addAndGet(chunk.trips.size());
+                countRows("skipped", chunk.trips.size());
+                meterRegistry.counter("import.chunk.failures").increment();
+            }
+        }
+    }
+
+    // Counted per chunk as it commits, so rate(import_rows_total) is live rows/sec during an import
+    private void countRows(String outcome, int rows) {
+        if (rows > 0) {
+            meterRegistry.counter("import.rows", "outcome", outcome).increment(rows);
+        }
+    }
+
+    private void awaitWriter(Future<?> writer) throws IOException {
+        try {
+            writer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
     private void initializeFareRates() {
         Map<String, Double> rates = Map.of(
                 "Non-AC Seater", 1.00,
@@ -129,15 +304,20 @@ public class ExcelImportService {
                 "AC Sleeper", 2.00
         );
 
+        List<FareRate> missing = new ArrayList<>();
         rates.forEach((category, rate) -> {
             if (!fareRateRepository.existsById(category)) {
-                FareRate fareRate = FareRate.builder()
+                missing.add(FareRate.builder()
                         .category(category)
                         .ratePerKm(java.math.BigDecimal.valueOf(rate))
-                        .build();
-                fareRateRepository.save(fareRate);
+                        .build());
             }
         });
+
+        if (!missing.isEmpty()) {
+            fareRateRepository.saveAll(missing);
+            eventPublisher.publishEvent(new FareRatesChangedEvent());
+        }
     }
 
     private void initializeDayCalendar() {
@@ -152,13 +332,13 @@ public class ExcelImportService {
         }
     }
 
-    private Map<String, Integer> buildColumnMap(Row headerRow) {
+    private Map<String, Integer> buildColumnMap(ExcelStreamReader.StreamedRow headerRow) {
         Map<String, Integer> columnMap = new HashMap<>();
-        for (Cell cell : headerRow) {
-            if (cell.getCellType() == CellType.STRING) {
-                columnMap.put(cell.getStringCellValue().trim(), cell.getColumnIndex());
+        headerRow.getValues().forEach((columnIndex, value) -> {
+            if (value instanceof String name) {
+                columnMap.put(name.trim(), columnIndex);
             }
-        }
+        });
         return columnMap;
     }
 
@@ -179,7 +359,7 @@ public class ExcelImportService {
         return valid;
     }
 
-    private ExcelImportDto.ExcelRow parseRow(Row row, Map<String, Integer> columnMap) {
+    private ExcelImportDto.ExcelRow parseRow(ExcelStreamReader.StreamedRow row, Map<String, Integer> columnMap) {
         try {
             return ExcelImportDto.ExcelRow.builder()
                     .date(getCellStringValue(row, columnMap.get("Date")))
@@ -202,95 +382,25 @@ public class ExcelImportService {
         }
     }
 
-    private void processRow(ExcelImportDto.ExcelRow excelRow, String batchId, List<String> warnings) {
-        // Create or update bus
-        Bus bus = busRepository.findById(excelRow.getBusId()).orElse(null);
-        if (bus == null) {
-            bus = Bus.builder()
-                    .busId(excelRow.getBusId())
-                    .busType(excelRow.getBusType())
-                    .capacity(excelRow.getCapacity())
-                    .build();
-            bus = busRepository.save(bus);
-
-            // Create seats for the bus
-            createSeatsForBus(bus);
-        }
-
+    private TripImportWriter.ImportedTrip processRow(ExcelImportDto.ExcelRow excelRow, List<String> warnings) {
         // Parse stops
         List<ExcelImportDto.ParsedStop> parsedStops = parseStopsWithTimings(excelRow.getStopsWithTimings());
         
         // Validate total KM
         if (!parsedStops.isEmpty()) {
-            int lastKm = parsedStops.get(parsedStops.size() - 1).getCumulativeKm();
+            Integer lastKm = parsedStops.get(parsedStops.size() - 1).getCumulativeKm();
             if (!lastKm.equals(excelRow.getTotalKm())) {
                 warnings.add("TotalKM mismatch for " + excelRow.getBusId() + " Day " + excelRow.getDay() + 
                            ": Excel=" + excelRow.getTotalKm() + ", Calculated=" + lastKm);
             }
         }
 
-        // Create or update trip
-        Trip existingTrip = tripRepository.findByDayNoAndBusId(excelRow.getDay(), excelRow.getBusId());
-        Trip trip;
-        
-        if (existingTrip != null) {
-            // Update existing trip
-            trip = existingTrip;
-            trip.setFromCity(excelRow.getFromCity());
-            trip.setToCity(excelRow.getDestination());
-            trip.setDepartureTime(excelRow.getDepartureTime());
-            trip.setArrivalTime(excelRow.getArrivalTime());
-            trip.setTotalKm(excelRow.getTotalKm());
-            trip.setPrice(excelRow.getFarePerSeat() != null ? excelRow.getFarePerSeat() : 0);
-            trip.setStatus(excelRow.getMaintenanceStatus());
-            trip.setImportBatchId(batchId);
-            
-            // Clear existing stops
-            tripStopRepository.deleteByTripId(trip.getId());
-        } else {
-            // Create new trip
-            trip = Trip.builder()
-                    .dayNo(excelRow.getDay())
-                    .bus(bus)
-                    .fromCity(excelRow.getFromCity())
-                    .toCity(excelRow.getDestination())
-                    .departureTime(excelRow.getDepartureTime())
-                    .arrivalTime(excelRow.getArrivalTime())
-                    .totalKm(excelRow.getTotalKm())
-                    .price(excelRow.getFarePerSeat() != null ? excelRow.getFarePerSeat() : 0)
-                    .status(excelRow.getMaintenanceStatus())
-                    .importBatchId(batchId)
-                    .build();
-        }
-        
-        trip = tripRepository.save(trip);
-
-        // Create trip stops
-        for (ExcelImportDto.ParsedStop parsedStop : parsedStops) {
-            TripStop tripStop = TripStop.builder()
-                    .trip(trip)
-                    .seqNo(parsedStop.getSequence())
-                    .stopName(parsedStop.getStopName())
-                    .arriveTime(parsedStop.getArriveTime())
-                    .departTime(parsedStop.getDepartTime())
-                    .cumulativeKm(parsedStop.getCumulativeKm())
-                    .build();
-            tripStopRepository.save(tripStop);
-        }
+        // Bus, trip and stop rows are written per chunk by TripImportWriter
+        return new TripImportWriter.ImportedTrip(excelRow, parsedStops);
     }
 
-    private void createSeatsForBus(Bus bus) {
-        // Create seats based on bus type and capacity
-        for (int i = 1; i <= bus.getCapacity(); i++) {
-            Seat seat = Seat.builder()
-                    .bus(bus)
-                    .seatNo(String.valueOf(i))
-                    .build();
-            seatRepository.save(seat);
-        }
-    }
-
-    private List<ExcelImportDto.ParsedStop> parseStopsWithTimings(String stopsWithTimings) {
+    // Package-private and static for the stop-parsing benchmark
+    static List<ExcelImportDto.ParsedStop> parseStopsWithTimings(String stopsWithTimings) {
         List<ExcelImportDto.ParsedStop> stops = new ArrayList<>();
         
         if (stopsWithTimings == null || stopsWithTimings.trim().isEmpty()) {
@@ -342,7 +452,7 @@ public class ExcelImportService {
         return stops;
     }
 
-    private LocalTime parseTime(String timeStr) {
+    private static LocalTime parseTime(String timeStr) {
         if (timeStr == null || timeStr.trim().isEmpty()) {
             return null;
         }
@@ -358,38 +468,34 @@ public class ExcelImportService {
         }
     }
 
-    private String getCellStringValue(Row row, Integer columnIndex) {
+    private String getCellStringValue(ExcelStreamReader.StreamedRow row, Integer columnIndex) {
         if (columnIndex == null) return null;
-        Cell cell = row.getCell(columnIndex);
-        if (cell == null) return null;
-        
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                return String.valueOf((int) cell.getNumericCellValue());
-            default:
-                return null;
+        Object value = row.getValue(columnIndex);
+
+        if (value instanceof String text) {
+            return text.trim();
+        }
+        if (value instanceof Double number) {
+            return String.valueOf(number.intValue());
         }
+        return null;
     }
 
-    private Integer getCellIntValue(Row row, Integer columnIndex) {
+    private Integer getCellIntValue(ExcelStreamReader.StreamedRow row, Integer columnIndex) {
         if (columnIndex == null) return null;
-        Cell cell = row.getCell(columnIndex);
-        if (cell == null) return null;
-        
-        switch (cell.getCellType()) {
-            case NUMERIC:
-                return (int) cell.getNumericCellValue();
-            case STRING:
-                try {
-                    return Integer.parseInt(cell.getStringCellValue().trim());
-                } catch (NumberFormatException e) {
-                    return null;
-                }
-            default:
+        Object value = row.getValue(columnIndex);
+
+        if (value instanceof Double number) {
+            return number.intValue();
+        }
+        if (value instanceof String text) {
+            try {
+                return Integer.parseInt(text.trim());
+            } catch (NumberFormatException e) {
                 return null;
+            }
         }
+        return null;
     }
 
     private ExcelImportDto.ImportResponse buildErrorResponse(List<String> errors) {
@@ -399,4 +505,42 @@ public class ExcelImportService {
                 .errors(errors)
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Pipeline plumbing of one import; the counters themselves live in {@link ImportProgress}.
+     */
+    private static class ImportRun {
+        private static final CompletableFuture<ParsedChunk> END = CompletableFuture.completedFuture(null);
+
+        private final ImportProgress progress;
+        private final BlockingQueue<CompletableFuture<ParsedChunk>> queue;
+
+        // Reader-thread only
+        private volatile Map<String, Integer> columnMap;
+        private List<ExcelStreamReader.StreamedRow> rawRows = new ArrayList<>();
+
+        private ImportRun(ImportProgress progress, int queueCapacity) {
+            this.progress = progress;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        private void enqueue(CompletableFuture<ParsedChunk> chunk) {
+            try {
+                queue.put(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Import interrupted", e);
+            }
+        }
+    }
+
+    private static class ParsedChunk {
+        private final List<TripImportWriter.ImportedTrip> trips = new ArrayList<>();
+        private final List<String> warnings = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private int skippedRows;
+        private int maintenanceRows;
+        private int firstRow;
+        private int lastRow;
+    }
+}
@@ -0,0 +1,194 @@
+package com.busreservation.bus_reservation.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads one sheet of an .xlsx file row by row with POI's SAX event API,
+ * so memory stays constant no matter how many rows the sheet has.
+ * The package is opened read-only from the file, so its zip entries are read on demand instead of
+ * being buffered in memory. Formula cells yield the value Excel cached when the workbook was saved.
+ */
+class ExcelStreamReader {
+
+    /**
+     * A parsed row: cell values by zero-based column, each either a String or a Double.
+     */
+    static class StreamedRow {
+        private final int rowIndex;
+        private final Map<Integer, Object> values;
+
+        StreamedRow(int rowIndex, Map<Integer, Object> values) {
+            this.rowIndex = rowIndex;
+            this.values = values;
+        }
+
+        int getRowIndex() {
+            return rowIndex;
+        }
+
+        Object getValue(int columnIndex) {
+            return values.get(columnIndex);
+        }
+
+        Map<Integer, Object> getValues() {
+            return values;
+        }
+    }
+
+    @FunctionalInterface
+    interface RowConsumer {
+        /**
+         * @return false to stop reading the rest of the sheet
+         */
+        boolean accept(StreamedRow row);
+    }
+
+    /**
+     * @return false if the workbook has no sheet with the given name
+     */
+    static boolean read(Path file, String sheetName, RowConsumer consumer) throws IOException {
+        OPCPackage pkg = null;
+        try {
+            pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg);
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    if (!sheetName.equals(sheets.getSheetName())) continue;
+
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new SheetHandler(sharedStrings, consumer));
+                    try {
+                        parser.parse(new InputSource(sheet));
+                    } catch (StopReading ignored) {
+                        // consumer asked to stop early
+                    }
+                    return true;
+                }
+            }
+            return false;
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            // close() would try to save a read-only package
+            if (pkg != null) {
+                pkg.revert();
+            }
+        }
+    }
+
+    private static class StopReading extends SAXException {
+    }
+
+    private static class SheetHandler extends DefaultHandler {
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final RowConsumer consumer;
+
+        private final StringBuilder text = new StringBuilder();
+        private Map<Integer, Object> rowValues;
+        private int rowIndex;
+        private int columnIndex;
+        private String cellType;
+        private boolean collecting;
+
+        SheetHandler(ReadOnlySharedStringsTable sharedStrings, RowConsumer consumer) {
+            this.sharedStrings = sharedStrings;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row" -> {
+                    String r = attributes.getValue("r");
+                    rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+                    rowValues = new HashMap<>();
+                    columnIndex = -1;
+                }
+                case "c" -> {
+                    String ref = attributes.getValue("r");
+                    columnIndex = ref != null ? columnIndex(ref) : columnIndex + 1;
+                    cellType = attributes.getValue("t");
+                    text.setLength(0);
+                }
+                case "v", "t" -> collecting = true;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v", "t" -> collecting = false;
+                case "c" -> {
+                    Object value = cellValue(text.toString());
+                    if (value != null) {
+                        rowValues.put(columnIndex, value);
+                    }
+                }
+                case "row" -> {
+                    if (!consumer.accept(new StreamedRow(rowIndex, rowValues))) {
+                        throw new StopReading();
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        // Strings and numbers, as the DOM importer read them; booleans and errors are dropped.
+        // Unlike the DOM importer, which skipped formula cells, a formula gives its cached result (t="str" or numeric)
+        private Object cellValue(String raw) {
+            if (raw.isEmpty()) return null;
+            if (cellType == null || "n".equals(cellType)) {
+                try {
+                    return Double.parseDouble(raw);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+            return switch (cellType) {
+                case "s" -> sharedStrings.getItemAt(Integer.parseInt(raw)).getString();
+                case "inlineStr", "str" -> raw;
+                default -> null;
+            };
+        }
+
+        private static int columnIndex(String cellRef) {
+            int col = 0;
+            for (int i = 0; i < cellRef.length(); i++) {
+                char c = cellRef.charAt(i);
+                if (!Character.isLetter(c)) break;
+                col = col * 26 + (Character.toUpperCase(c) - 'A' + 1);
+            }
+            return col - 1;
+        }
+    }
+}
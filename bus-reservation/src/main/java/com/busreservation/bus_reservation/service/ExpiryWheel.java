@@ -0,0 +1,65 @@
+package com.busreservation.bus_reservation.service;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: entries land in the slot of the tick they expire on, so each advance only touches
+ * the slots whose time has come instead of scanning everything outstanding.
+ * Scheduling is lock-free from any thread; {@link #advance} is driven by one ticking thread.
+ * Deadlines further out than one rotation stay in their slot until the round they are due.
+ */
+final class ExpiryWheel<T> {
+
+    private record Entry<T>(T item, long deadlineTick) {
+    }
+
+    private final long tickMillis;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Entry<T>>[] slots;
+    private volatile long lastTick;
+
+    @SuppressWarnings("unchecked")
+    ExpiryWheel(int slotCount, long tickMillis, long startMillis) {
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("slotCount must be a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.mask = slotCount - 1;
+        this.slots = new ConcurrentLinkedQueue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastTick = startMillis / tickMillis;
+    }
+
+    void schedule(T item, long deadlineMillis) {
+        // Never behind the cursor, or the entry would wait a whole rotation
+        long tick = Math.max(Math.ceilDiv(deadlineMillis, tickMillis), lastTick + 1);
+        slots[(int) (tick & mask)].add(new Entry<>(item, tick));
+    }
+
+    /**
+     * Hands every entry whose deadline is at or before {@code nowMillis} to {@code onExpired}.
+     */
+    void advance(long nowMillis, Consumer<T> onExpired) {
+        long nowTick = nowMillis / tickMillis;
+        long from = lastTick + 1;
+        // After a long pause every slot is due once; visiting it again would find nothing new
+        long to = Math.min(nowTick, from + mask);
+        for (long tick = from; tick <= to; tick++) {
+            Iterator<Entry<T>> it = slots[(int) (tick & mask)].iterator();
+            while (it.hasNext()) {
+                Entry<T> entry = it.next();
+                if (entry.deadlineTick() <= nowTick) {
+                    it.remove();
+                    onExpired.accept(entry.item());
+                }
+            }
+        }
+        if (nowTick > lastTick) {
+            lastTick = nowTick;
+        }
+    }
+}
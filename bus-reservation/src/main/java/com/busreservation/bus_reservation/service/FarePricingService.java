@@ -0,0 +1,109 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.dto.FareRateDto;
+import com.busreservation.bus_reservation.event.FareRatesChangedEvent;
+import com.busreservation.bus_reservation.exception.BadRequestException;
+import com.busreservation.bus_reservation.exception.NotFoundException;
+import com.busreservation.bus_reservation.model.FareRate;
+import com.busreservation.bus_reservation.repository.FareRateRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Fares from an in-memory copy of fare_rates. Each category gets a precomputed fare per km
+ * up to {@code app.fare.table-max-km}, so pricing a segment is one array read.
+ * The copy is dropped whenever the rates change and reloaded on the next lookup.
+ */
+@Service
+public class FarePricingService {
+
+    private static final int DEFAULT_RATE_PER_KM = 2; // ₹2 per km when the bus type has no rate
+
+    private final FareRateRepository fareRateRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int tableMaxKm;
+
+    private volatile FareTable table;
+
+    public FarePricingService(FareRateRepository fareRateRepository, ApplicationEventPublisher eventPublisher,
+                              @Value("${app.fare.table-max-km:3000}") int tableMaxKm) {
+        this.fareRateRepository = fareRateRepository;
+        this.eventPublisher = eventPublisher;
+        this.tableMaxKm = tableMaxKm;
+    }
+
+    private record FareTable(Map<String, BigDecimal> rates, Map<String, int[]> faresByKm) {
+    }
+
+    public int calculateFare(String busType, int distanceKm) {
+        FareTable current = table();
+        int[] fares = current.faresByKm().get(busType);
+        if (fares == null) {
+            return distanceKm * DEFAULT_RATE_PER_KM;
+        }
+        if (distanceKm >= 0 && distanceKm < fares.length) {
+            return fares[distanceKm];
+        }
+        return current.rates().get(busType).multiply(BigDecimal.valueOf(distanceKm)).intValue();
+    }
+
+    public List<FareRateDto.FareRateResponse> getRates() {
+        return table().rates().entrySet().stream()
+                .map(e -> FareRateDto.FareRateResponse.builder().category(e.getKey()).ratePerKm(e.getValue()).build())
+                .toList();
+    }
+
+    @Transactional
+    public FareRateDto.FareRateResponse updateRate(String category, BigDecimal ratePerKm) {
+        if (ratePerKm == null || ratePerKm.signum() <= 0) {
+            throw new BadRequestException("ratePerKm must be positive");
+        }
+        FareRate fareRate = fareRateRepository.findById(category)
+                .orElseThrow(() -> new NotFoundException("Fare category not found"));
+        fareRate.setRatePerKm(ratePerKm);
+        fareRateRepository.save(fareRate);
+        eventPublisher.publishEvent(new FareRatesChangedEvent());
+
+        return FareRateDto.FareRateResponse.builder().category(category).ratePerKm(ratePerKm).build();
+    }
+
+    // Drop the copy only after commit, so a reload never reads rates that could still roll back
+    @Order(0)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onFareRatesChanged(FareRatesChangedEvent event) {
+        table = null;
+    }
+
+    private FareTable table() {
+        FareTable current = table;
+        return current != null ? current : load();
+    }
+
+    private synchronized FareTable load() {
+        if (table != null) return table;
+
+        Map<String, BigDecimal> rates = new TreeMap<>();
+        Map<String, int[]> faresByKm = new HashMap<>();
+        for (FareRate fareRate : fareRateRepository.findAll()) {
+            BigDecimal rate = fareRate.getRatePerKm();
+            int[] fares = new int[tableMaxKm + 1];
+            for (int km = 0; km <= tableMaxKm; km++) {
+                // Same rounding as before: BigDecimal product truncated to whole rupees
+                fares[km] = rate.multiply(BigDecimal.valueOf(km)).intValue();
+            }
+            rates.put(fareRate.getCategory(), rate);
+            faresByKm.put(fareRate.getCategory(), fares);
+        }
+
+        table = new FareTable(Collections.unmodifiableMap(rates), Map.copyOf(faresByKm));
+        return table;
+    }
+}
@@ -0,0 +1,199 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.config.ThreadFactories;
+import com.busreservation.bus_reservation.dto.ExcelImportDto;
+import com.busreservation.bus_reservation.exception.NotFoundException;
+import com.busreservation.bus_reservation.exception.TooManyRequestsException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.*;
+
+/**
+ * Runs Excel imports in the background so the upload request returns immediately.
+ * At most {@code app.import.max-concurrent} imports run at once; a few more may wait in the queue.
+ * The synchronous upload goes through the same queue and limits, and only waits for its job.
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportJobService.class);
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+
+    private final ExcelImportService excelImportService;
+    private final ThreadPoolExecutor executor;
+    private final Duration retention;
+    private final ConcurrentMap<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public ImportJobService(ExcelImportService excelImportService,
+                            @Value("${app.import.max-concurrent:2}") int maxConcurrent,
+                            @Value("${app.import.max-queued:4}") int maxQueued,
+                            @Value("${app.import.job-retention-minutes:360}") long retentionMinutes,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.excelImportService = excelImportService;
+        // Still a bounded pool: the limits are about database load, not thread cost
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueued)), ThreadFactories.named("import-job-", virtualThreads));
+        this.retention = Duration.ofMinutes(retentionMinutes);
+    }
+
+    public static class ImportJob {
+        private final ImportProgress progress;
+        private final Path upload;
+        private final Instant submittedAt = Instant.now();
+        private volatile Status status = Status.QUEUED;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile ExcelImportDto.ImportResponse result;
+        private volatile Future<?> future;
+
+        private ImportJob(ImportProgress progress, Path upload) {
+            this.progress = progress;
+            this.upload = upload;
+        }
+    }
+
+    public ExcelImportDto.ImportJobStatus submit(MultipartFile file) throws IOException {
+        return toStatus(enqueue(file));
+    }
+
+    public ExcelImportDto.ImportResponse importAndWait(MultipartFile file) throws IOException {
+        ImportJob job = enqueue(file);
+        try {
+            job.future.get();
+        } catch (CancellationException e) {
+            // Cancelled through the jobs endpoint while still queued
+        } catch (ExecutionException e) {
+            log.error("Import job {} failed", job.progress.getBatchId(), e.getCause());
+        } catch (InterruptedException e) {
+            // The caller gave up; stop the import after its current chunk like a cancelled job
+            job.progress.cancel();
+            Thread.currentThread().interrupt();
+        }
+
+        if (job.result != null) {
+            return job.result;
+        }
+        return ExcelImportDto.ImportResponse.builder()
+                .success(false)
+                .message(job.status == Status.CANCELLED || job.progress.isCancelled() ? "Import cancelled" : "Import failed")
+                .warnings(job.progress.getWarnings())
+                .errors(job.progress.getErrors())
+                .build();
+    }
+
+    private ImportJob enqueue(MultipartFile file) throws IOException {
+        // The multipart upload is deleted when the request ends, so keep our own copy
+        Path upload = Files.createTempFile("import-", ".xlsx");
+        file.transferTo(upload);
+
+        ImportJob job = new ImportJob(new ImportProgress(ImportProgress.newBatchId()), upload);
+        jobs.put(job.progress.getBatchId(), job);
+        try {
+            job.future = executor.submit(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.progress.getBatchId());
+            deleteUpload(job);
+            throw new TooManyRequestsException("Too many imports in progress, try again later");
+        }
+        return job;
+    }
+
+    public ExcelImportDto.ImportJobStatus getStatus(String jobId) {
+        return toStatus(find(jobId));
+    }
+
+    public ExcelImportDto.ImportJobStatus cancel(String jobId) {
+        ImportJob job = find(jobId);
+        job.progress.cancel();
+        // A job still in the queue never starts, so its slot and upload are freed here;
+        // a running one stops after its current chunk and cleans up itself
+        if (job.status == Status.QUEUED && job.future.cancel(false)) {
+            executor.remove((Runnable) job.future);
+            job.status = Status.CANCELLED;
+            job.finishedAt = Instant.now();
+            deleteUpload(job);
+        }
+        return toStatus(job);
+    }
+
+    @Scheduled(fixedDelay = 600_000)
+    public void purgeFinishedJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ImportJob job) {
+        job.startedAt = Instant.now();
+        job.status = Status.RUNNING;
+        try {
+            ExcelImportDto.ImportResponse result = excelImportService.importExcel(job.upload, job.progress);
+            job.result = result;
+            job.status = job.progress.isCancelled() ? Status.CANCELLED
+                    : result.isSuccess() ? Status.COMPLETED : Status.FAILED;
+        } catch (Exception e) {
+            log.error("Import job {} failed", job.progress.getBatchId(), e);
+            job.progress.errors.add("Import failed: " + e.getMessage());
+            job.status = Status.FAILED;
+        } finally {
+            job.finishedAt = Instant.now();
+            deleteUpload(job);
+        }
+    }
+
+    private void deleteUpload(ImportJob job) {
+        try {
+            Files.deleteIfExists(job.upload);
+        } catch (IOException e) {
+            log.warn("Could not delete import upload {}", job.upload, e);
+        }
+    }
+
+    private ImportJob find(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new NotFoundException("Import job not found");
+        }
+        return job;
+    }
+
+    private ExcelImportDto.ImportJobStatus toStatus(ImportJob job) {
+        ImportProgress progress = job.progress;
+        double rowsPerSecond = 0;
+        if (job.startedAt != null) {
+            Instant end = job.finishedAt != null ? job.finishedAt : Instant.now();
+            long millis = Math.max(1, Duration.between(job.startedAt, end).toMillis());
+            rowsPerSecond = progress.getProcessedRows() * 1000.0 / millis;
+        }
+
+        return ExcelImportDto.ImportJobStatus.builder()
+                .jobId(progress.getBatchId())
+                .status(job.status.name())
+                .rowsRead(progress.getTotalRows())
+                .rowsProcessed(progress.getProcessedRows())
+                .rowsPerSecond(rowsPerSecond)
+                .warnings(progress.getWarnings())
+                .errors(progress.getErrors())
+                .summary(job.result != null ? job.result.getSummary() : null)
+                .submittedAt(job.submittedAt)
+                .startedAt(job.startedAt)
+                .finishedAt(job.finishedAt)
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.busreservation.bus_reservation.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live counters of one Excel import. Updated by the import pipeline, readable from any thread
+ * while the import runs, and cancellable.
+ */
+public class ImportProgress {
+
+    private final String batchId;
+    final AtomicInteger totalRows = new AtomicInteger();
+    final AtomicInteger successfulRows = new AtomicInteger();
+    final AtomicInteger skippedRows = new AtomicInteger();
+    final AtomicInteger maintenanceRows = new AtomicInteger();
+    final AtomicInteger insertedRows = new AtomicInteger();
+    final AtomicInteger updatedRows = new AtomicInteger();
+    final AtomicInteger unchangedRows = new AtomicInteger();
+    final Set<Integer> changedDays = ConcurrentHashMap.newKeySet();
+    final List<String> warnings = Collections.synchronizedList(new ArrayList<>());
+    final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean cancelled;
+
+    public ImportProgress(String batchId) {
+        this.batchId = batchId;
+    }
+
+    public static String newBatchId() {
+        // Unique even for uploads in the same millisecond or on different nodes
+        return "BATCH_" + UUID.randomUUID();
+    }
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public int getTotalRows() {
+        return totalRows.get();
+    }
+
+    public int getSuccessfulRows() {
+        return successfulRows.get();
+    }
+
+    public int getSkippedRows() {
+        return skippedRows.get();
+    }
+
+    public int getMaintenanceRows() {
+        return maintenanceRows.get();
+    }
+
+    public int getInsertedRows() {
+        return insertedRows.get();
+    }
+
+    public int getUpdatedRows() {
+        return updatedRows.get();
+    }
+
+    public int getUnchangedRows() {
+        return unchangedRows.get();
+    }
+
+    // Days with at least one inserted or updated trip
+    public Set<Integer> getChangedDays() {
+        return Set.copyOf(changedDays);
+    }
+
+    // Rows that have made it all the way through the pipeline, written or skipped
+    public int getProcessedRows() {
+        return successfulRows.get() + skippedRows.get();
+    }
+
+    public List<String> getWarnings() {
+        synchronized (warnings) {
+            return new ArrayList<>(warnings);
+        }
+    }
+
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,71 @@
+package com.busreservation.bus_reservation.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake-style PNRs: 41 bits of milliseconds since 2024-01-01, 10 bits of node id and a 12-bit
+ * per-millisecond sequence, written as 13 Crockford base-32 characters after the "MGT" prefix.
+ * Unique per node without locks or database round trips; give every node its own {@code app.pnr.node-id}.
+ */
+@Component
+public class PnrGenerator {
+
+    static final String PREFIX = "MGT";
+    static final long EPOCH_MILLIS = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13; // ceil(63 / 5)
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+    // Last issued (millis << SEQUENCE_BITS | sequence); only ever moves forward
+    private final AtomicLong lastStamp = new AtomicLong();
+
+    public PnrGenerator(@Value("${app.pnr.node-id:0}") int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    PnrGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("app.pnr.node-id must be between 0 and " + MAX_NODE_ID + ", was " + nodeId);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    public String next() {
+        return PREFIX + encode(nextId());
+    }
+
+    long nextId() {
+        long now = clock.getAsLong() - EPOCH_MILLIS;
+        while (true) {
+            long last = lastStamp.get();
+            // A new millisecond restarts the sequence; within the same one (or if the clock stepped back)
+            // take the next stamp, letting a full sequence carry into the following millisecond
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (lastStamp.compareAndSet(last, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return millis << (NODE_BITS + SEQUENCE_BITS) | nodeBits | sequence;
+            }
+        }
+    }
+
+    // Fixed width, most significant first, so PNRs of one node sort by issue order
+    static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
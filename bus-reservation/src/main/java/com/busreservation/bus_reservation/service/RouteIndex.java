@@ -0,0 +1,329 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.model.Trip;
+import com.busreservation.bus_reservation.model.TripStop;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Immutable snapshot of all Running dated trips, organised for from/to lookups.
+ * Stop names are interned to int ids. Every travel date holds a materialized connection table:
+ * for each ordered (fromStop, toStop) pair, the trips that serve it, with seqs, km and times,
+ * in flat primitive arrays. A search is one binary search plus a walk over its results.
+ * Dates are built independently, so a calendar change only rebuilds the dates it touched.
+ * A trip with n stops contributes n(n-1)/2 connections, repeated for every date in the calendar window.
+ * Dated trips are copies of master-plan days, so dates whose tables differ only in their trips share
+ * one set of connection arrays; the index grows with the distinct days of the plan, not the window.
+ */
+public class RouteIndex {
+
+    public static final RouteIndex EMPTY = new RouteIndex(Map.of(), new String[0], Map.of(), Map.of());
+
+    private final Map<String, Integer> stopIds;
+    private final String[] stopNames;
+    private final Map<Long, TripEntry> trips;
+    private final Map<LocalDate, DayConnections> days;
+
+    private RouteIndex(Map<String, Integer> stopIds, String[] stopNames, Map<Long, TripEntry> trips,
+                       Map<LocalDate, DayConnections> days) {
+        this.stopIds = stopIds;
+        this.stopNames = stopNames;
+        this.trips = trips;
+        this.days = days;
+    }
+
+    public record TripEntry(Long tripId, LocalDate travelDate, String busId, String busType, Integer capacity,
+                            String fromCity, String toCity, LocalTime departureTime, LocalTime arrivalTime) {
+    }
+
+    /**
+     * A stop on a matched route. Visits carry the times a search shows: the departure
+     * at the boarding stop and the arrival at the dropping stop.
+     */
+    public record StopVisit(long tripId, int seqNo, int cumulativeKm, String stopName,
+                            LocalTime arriveTime, LocalTime departTime) {
+    }
+
+    public record RouteMatch(TripEntry trip, StopVisit from, StopVisit to) {
+    }
+
+    /**
+     * Connection table of one travel date: its trips, ordered by id, and the connections between their stops.
+     */
+    static final class DayConnections {
+        private final TripEntry[] trips;
+        private final Connections connections;
+
+        private DayConnections(TripEntry[] trips, Connections connections) {
+            this.trips = trips;
+            this.connections = connections;
+        }
+
+        int connectionCount() {
+            return connections.entryTrip.length;
+        }
+    }
+
+    /**
+     * Pair keys are (fromStopId << 32 | toStopId), sorted; the connections of pair k are entries
+     * offsets[k] until offsets[k + 1], ordered by trip. Trips are referred to by their index in the
+     * day, so equal tables of different dates are interchangeable.
+     */
+    static final class Connections {
+        private final long[] pairKeys;
+        private final int[] offsets;
+        private final int[] entryTrip;   // index into the day's trips
+        private final int[] entrySeqs;   // fromSeq << 16 | toSeq
+        private final int[] entryFromKm;
+        private final int[] entryToKm;
+        private final long[] entryTimes; // (boarding second of day + 1) << 32 | (dropping second of day + 1), 0 = none
+        private final int hash;
+
+        private Connections(long[] pairKeys, int[] offsets, int[] entryTrip, int[] entrySeqs,
+                            int[] entryFromKm, int[] entryToKm, long[] entryTimes) {
+            this.pairKeys = pairKeys;
+            this.offsets = offsets;
+            this.entryTrip = entryTrip;
+            this.entrySeqs = entrySeqs;
+            this.entryFromKm = entryFromKm;
+            this.entryToKm = entryToKm;
+            this.entryTimes = entryTimes;
+            this.hash = Objects.hash(Arrays.hashCode(pairKeys), Arrays.hashCode(entryTrip), Arrays.hashCode(entrySeqs),
+                    Arrays.hashCode(entryFromKm), Arrays.hashCode(entryToKm), Arrays.hashCode(entryTimes));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Connections other) || hash != other.hash) return false;
+            return Arrays.equals(pairKeys, other.pairKeys) && Arrays.equals(offsets, other.offsets)
+                    && Arrays.equals(entryTrip, other.entryTrip) && Arrays.equals(entrySeqs, other.entrySeqs)
+                    && Arrays.equals(entryFromKm, other.entryFromKm) && Arrays.equals(entryToKm, other.entryToKm)
+                    && Arrays.equals(entryTimes, other.entryTimes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    public List<RouteMatch> findRoutes(LocalDate date, String fromStop, String toStop) {
+        Integer fromId = stopIds.get(normalize(fromStop));
+        Integer toId = stopIds.get(normalize(toStop));
+        DayConnections day = days.get(date);
+        if (fromId == null || toId == null || day == null) {
+            return List.of();
+        }
+
+        Connections c = day.connections;
+        int pair = Arrays.binarySearch(c.pairKeys, pairKey(fromId, toId));
+        if (pair < 0) {
+            return List.of();
+        }
+
+        String fromName = stopNames[fromId];
+        String toName = stopNames[toId];
+        List<RouteMatch> matches = new ArrayList<>(c.offsets[pair + 1] - c.offsets[pair]);
+        for (int e = c.offsets[pair]; e < c.offsets[pair + 1]; e++) {
+            TripEntry trip = day.trips[c.entryTrip[e]];
+            long times = c.entryTimes[e];
+            matches.add(new RouteMatch(trip,
+                    new StopVisit(trip.tripId(), c.entrySeqs[e] >>> 16, c.entryFromKm[e], fromName,
+                            null, time((int) (times >>> 32))),
+                    new StopVisit(trip.tripId(), c.entrySeqs[e] & 0xFFFF, c.entryToKm[e], toName,
+                            time((int) times), null)));
+        }
+        return matches;
+    }
+
+    public TripEntry getTrip(Long tripId) {
+        return trips.get(tripId);
+    }
+
+    public int tripCount() {
+        return trips.size();
+    }
+
+    public int connectionCount() {
+        return days.values().stream().mapToInt(DayConnections::connectionCount).sum();
+    }
+
+    // Distinct connection tables actually held; dates with equal tables share one
+    int distinctTableCount() {
+        Set<Connections> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        days.values().forEach(day -> distinct.add(day.connections));
+        return distinct.size();
+    }
+
+    /**
+     * Identity of one date's table: unchanged across rebuilds of other dates, so callers can tell
+     * whether results they derived for this date are still current.
+     */
+    public Object dayVersion(LocalDate date) {
+        return days.get(date);
+    }
+
+    static String normalize(String stopName) {
+        return stopName == null ? "" : stopName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Builds an index from stops ordered by trip id and sequence, with trip and bus already fetched.
+     */
+    public static RouteIndex build(List<TripStop> orderedStops) {
+        return EMPTY.withDates(Set.of(), orderedStops);
+    }
+
+    /**
+     * Returns a copy where the given dates (and any date present in the stops) are rebuilt from
+     * {@code orderedStops}; every other date is shared with this index. A listed date with no stops is dropped.
+     */
+    public RouteIndex withDates(Collection<LocalDate> dates, List<TripStop> orderedStops) {
+        Map<String, Integer> newStopIds = new HashMap<>(stopIds);
+        List<String> newStopNames = new ArrayList<>(Arrays.asList(stopNames));
+
+        // Group stops by date and trip, keeping the first visit of a stop per trip
+        Map<LocalDate, List<List<TripStop>>> stopsByDay = new HashMap<>();
+        Map<LocalDate, List<int[]>> stopIdsByDay = new HashMap<>();
+        Set<Integer> seenInTrip = new HashSet<>();
+        Long currentTripId = null;
+        List<TripStop> tripStops = null;
+        List<Integer> tripStopIds = null;
+
+        for (TripStop stop : orderedStops) {
+            Trip trip = stop.getTrip();
+            if (!trip.getId().equals(currentTripId)) {
+                if (tripStops != null) {
+                    stopIdsByDay.get(tripStops.get(0).getTrip().getTravelDate())
+                            .add(tripStopIds.stream().mapToInt(Integer::intValue).toArray());
+                }
+                currentTripId = trip.getId();
+                seenInTrip.clear();
+                tripStops = new ArrayList<>();
+                tripStopIds = new ArrayList<>();
+                stopsByDay.computeIfAbsent(trip.getTravelDate(), d -> new ArrayList<>()).add(tripStops);
+                stopIdsByDay.computeIfAbsent(trip.getTravelDate(), d -> new ArrayList<>());
+            }
+
+            String name = normalize(stop.getStopName());
+            Integer stopId = newStopIds.get(name);
+            if (stopId == null) {
+                stopId = newStopIds.size();
+                newStopIds.put(name, stopId);
+                newStopNames.add(stop.getStopName().trim());
+            }
+
+            // Keep only the first visit of a stop per trip, same as a first-match name lookup
+            if (!seenInTrip.add(stopId)) continue;
+            tripStops.add(stop);
+            tripStopIds.add(stopId);
+        }
+        if (tripStops != null) {
+            stopIdsByDay.get(tripStops.get(0).getTrip().getTravelDate())
+                    .add(tripStopIds.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        Set<LocalDate> rebuiltDays = new HashSet<>(dates);
+        rebuiltDays.addAll(stopsByDay.keySet());
+
+        Map<LocalDate, DayConnections> newDays = new HashMap<>(days);
+        Map<Long, TripEntry> newTrips = new HashMap<>(trips);
+        for (LocalDate date : rebuiltDays) {
+            DayConnections previous = newDays.remove(date);
+            if (previous != null) {
+                for (TripEntry trip : previous.trips) {
+                    newTrips.remove(trip.tripId());
+                }
+            }
+
+            List<List<TripStop>> dayTrips = stopsByDay.get(date);
+            if (dayTrips == null) continue;
+
+            DayConnections day = buildDay(dayTrips, stopIdsByDay.get(date));
+            for (DayConnections other : newDays.values()) {
+                if (other.connections.equals(day.connections)) {
+                    day = new DayConnections(day.trips, other.connections);
+                    break;
+                }
+            }
+            newDays.put(date, day);
+            for (TripEntry trip : day.trips) {
+                newTrips.put(trip.tripId(), trip);
+            }
+        }
+
+        return new RouteIndex(newStopIds, newStopNames.toArray(new String[0]), newTrips, newDays);
+    }
+
+    // Trips arrive in trip id order, so filling each pair's slots in that order keeps them sorted by trip id
+    private static DayConnections buildDay(List<List<TripStop>> dayTrips, List<int[]> dayStopIds) {
+        TripEntry[] trips = new TripEntry[dayTrips.size()];
+
+        // First pass: count connections per pair
+        Map<Long, Integer> pairCounts = new HashMap<>();
+        for (int t = 0; t < dayTrips.size(); t++) {
+            Trip trip = dayTrips.get(t).get(0).getTrip();
+            trips[t] = new TripEntry(trip.getId(), trip.getTravelDate(), trip.getBus().getBusId(), trip.getBus().getBusType(),
+                    trip.getBus().getCapacity(), trip.getFromCity(), trip.getToCity(),
+                    trip.getDepartureTime(), trip.getArrivalTime());
+
+            int[] ids = dayStopIds.get(t);
+            for (int i = 0; i < ids.length; i++) {
+                for (int j = i + 1; j < ids.length; j++) {
+                    pairCounts.merge(pairKey(ids[i], ids[j]), 1, Integer::sum);
+                }
+            }
+        }
+
+        long[] pairKeys = pairCounts.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        int[] offsets = new int[pairKeys.length + 1];
+        Map<Long, Integer> nextSlot = new HashMap<>(pairKeys.length * 2);
+        for (int k = 0; k < pairKeys.length; k++) {
+            offsets[k + 1] = offsets[k] + pairCounts.get(pairKeys[k]);
+            nextSlot.put(pairKeys[k], offsets[k]);
+        }
+
+        int total = offsets[pairKeys.length];
+        int[] entryTrip = new int[total];
+        int[] entrySeqs = new int[total];
+        int[] entryFromKm = new int[total];
+        int[] entryToKm = new int[total];
+        long[] entryTimes = new long[total];
+
+        // Second pass: fill the slots
+        for (int t = 0; t < dayTrips.size(); t++) {
+            List<TripStop> stops = dayTrips.get(t);
+            int[] ids = dayStopIds.get(t);
+            for (int i = 0; i < ids.length; i++) {
+                TripStop from = stops.get(i);
+                for (int j = i + 1; j < ids.length; j++) {
+                    TripStop to = stops.get(j);
+                    int e = nextSlot.merge(pairKey(ids[i], ids[j]), 1, Integer::sum) - 1;
+                    entryTrip[e] = t;
+                    entrySeqs[e] = from.getSeqNo() << 16 | to.getSeqNo();
+                    entryFromKm[e] = from.getCumulativeKm();
+                    entryToKm[e] = to.getCumulativeKm();
+                    entryTimes[e] = (long) seconds(from.getDepartTime()) << 32 | seconds(to.getArriveTime());
+                }
+            }
+        }
+
+        return new DayConnections(trips,
+                new Connections(pairKeys, offsets, entryTrip, entrySeqs, entryFromKm, entryToKm, entryTimes));
+    }
+
+    private static long pairKey(int fromId, int toId) {
+        return (long) fromId << 32 | toId;
+    }
+
+    private static int seconds(LocalTime time) {
+        return time == null ? 0 : time.toSecondOfDay() + 1;
+    }
+
+    private static LocalTime time(int seconds) {
+        return seconds == 0 ? null : LocalTime.ofSecondOfDay(seconds - 1);
+    }
+}
@@ -0,0 +1,72 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.event.TripCalendarChangedEvent;
+import com.busreservation.bus_reservation.repository.TripStopRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Service
+public class RouteIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteIndexService.class);
+
+    private final TripStopRepository tripStopRepository;
+
+    private volatile RouteIndex index = RouteIndex.EMPTY;
+
+    public RouteIndexService(TripStopRepository tripStopRepository) {
+        this.tripStopRepository = tripStopRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    // Rebuild only once the calendar transaction has committed, so the index never sees rolled-back rows
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTripCalendarChanged(TripCalendarChangedEvent event) {
+        rebuildDates(event.dates());
+    }
+
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        RouteIndex rebuilt = RouteIndex.build(tripStopRepository.findAllRunningWithTrip());
+        index = rebuilt;
+        log.info("Route index rebuilt with {} trips, {} connections in {} ms",
+                rebuilt.tripCount(), rebuilt.connectionCount(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Reloads only the given dates; the connection tables of every other date are carried over as they are.
+     */
+    public synchronized void rebuildDates(Collection<LocalDate> dates) {
+        if (dates.isEmpty()) return;
+        long start = System.currentTimeMillis();
+        RouteIndex rebuilt = index.withDates(dates, tripStopRepository.findRunningWithTripByTravelDateIn(dates));
+        index = rebuilt;
+        log.info("Route index rebuilt {} dates in {} ms", dates.size(), System.currentTimeMillis() - start);
+    }
+
+    // The snapshot searches run against; replaced, never mutated, on rebuild
+    public RouteIndex current() {
+        return index;
+    }
+
+    public List<RouteIndex.RouteMatch> findRoutes(LocalDate date, String fromStop, String toStop) {
+        return index.findRoutes(date, fromStop, toStop);
+    }
+
+    public RouteIndex.TripEntry getTrip(Long tripId) {
+        return index.getTrip(tripId);
+    }
+}
@@ -0,0 +1,209 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.event.FareRatesChangedEvent;
+import com.busreservation.bus_reservation.event.SeatInventoryChangedEvent;
+import com.busreservation.bus_reservation.event.TripCalendarChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Search candidates per normalized (date, from, to, category), with fares already priced.
+ * Seat counts are patched per (tripId, date): a {@link SeatInventoryChangedEvent} marks only that trip's
+ * cached counts stale, and the next reader recounts them from the occupancy engine.
+ * Entries built on an older table of their date in the route index are ignored; calendar changes drop the
+ * dates they touched and fare changes drop everything. The map is bounded; whichever way an entry leaves it
+ * (eviction, replacement, invalidation) its trips are taken out of the patching index as well.
+ */
+@Component
+public class SearchResultCache {
+
+    private final Counter hits;
+    private final Counter misses;
+
+    private final Cache<SearchKey, CachedSearch> searches;
+    // Reverse index for patching: which cached trips show seats of a given (tripId, date)
+    private final ConcurrentMap<SeatOccupancyService.TripDateKey, Set<CachedTrip>> tripsBySeatInventory = new ConcurrentHashMap<>();
+
+    public SearchResultCache(MeterRegistry meterRegistry,
+                             @Value("${app.search-cache.max-entries:20000}") int maxEntries) {
+        this.searches = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .executor(Runnable::run)
+                .<SearchKey, CachedSearch>removalListener((key, search, cause) -> {
+                    if (key != null && search != null) unregister(key.date(), search.trips());
+                })
+                .build();
+        this.hits = meterRegistry.counter("search.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("search.cache.requests", "result", "miss");
+        meterRegistry.gauge("search.cache.entries", searches, Cache::estimatedSize);
+    }
+
+    public record SearchKey(LocalDate date, String from, String to, String category) {
+        public static SearchKey of(LocalDate date, String from, String to, String category) {
+            return new SearchKey(date, RouteIndex.normalize(from), RouteIndex.normalize(to),
+                    category == null ? "" : category.trim().toLowerCase());
+        }
+    }
+
+    private record CachedSearch(Object dayVersion, List<CachedTrip> trips) {
+    }
+
+    // A seat count together with the change version it was counted at
+    private record Count(int version, int seats) {
+    }
+
+    /**
+     * One candidate trip of a cached search. Everything but the seat count is fixed for the entry's lifetime.
+     */
+    public static final class CachedTrip {
+        private final RouteIndex.RouteMatch match;
+        private final LocalDate date;
+        private final int distanceKm;
+        private final int fareAmount;
+        private final AtomicInteger version = new AtomicInteger();
+        private volatile Count count; // null until first counted
+
+        public CachedTrip(RouteIndex.RouteMatch match, LocalDate date, int distanceKm, int fareAmount) {
+            this.match = match;
+            this.date = date;
+            this.distanceKm = distanceKm;
+            this.fareAmount = fareAmount;
+        }
+
+        public RouteIndex.RouteMatch match() {
+            return match;
+        }
+
+        public LocalDate date() {
+            return date;
+        }
+
+        public int distanceKm() {
+            return distanceKm;
+        }
+
+        public int fareAmount() {
+            return fareAmount;
+        }
+
+        // True when the next availableSeats call has to recount from the occupancy engine
+        public boolean needsRecount() {
+            Count current = count;
+            return current == null || current.version() != version.get();
+        }
+
+        public int availableSeats(SeatOccupancyService seatOccupancyService) {
+            // Read the version before counting, so a change landing mid-count leaves the result outdated
+            int at = version.get();
+            Count current = count;
+            if (current != null && current.version() == at) {
+                return current.seats();
+            }
+            int seats = seatOccupancyService.availableSeats(match.trip().tripId(), date,
+                    match.trip().capacity(), match.from().seqNo(), match.to().seqNo());
+            count = new Count(at, seats);
+            return seats;
+        }
+
+        void markStale() {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the cached candidates for the key, loading them when missing or built on another
+     * version of the date's route table ({@link RouteIndex#dayVersion}).
+     */
+    public List<CachedTrip> get(SearchKey key, Object dayVersion, Supplier<List<CachedTrip>> loader) {
+        CachedSearch cached = searches.getIfPresent(key);
+        if (cached != null && cached.dayVersion() == dayVersion) {
+            hits.increment();
+            return cached.trips();
+        }
+
+        misses.increment();
+        List<CachedTrip> trips = loader.get();
+        // Register for patching before anyone reads a count, so no change can slip in between.
+        // Replacing an outdated entry unregisters its trips through the removal listener.
+        register(key.date(), trips);
+        searches.put(key, new CachedSearch(dayVersion, trips));
+        return trips;
+    }
+
+    @EventListener
+    public void onSeatInventoryChanged(SeatInventoryChangedEvent event) {
+        Set<CachedTrip> affected = tripsBySeatInventory.get(new SeatOccupancyService.TripDateKey(event.tripId(), event.date()));
+        if (affected != null) {
+            affected.forEach(CachedTrip::markStale);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTripCalendarChanged(TripCalendarChangedEvent event) {
+        Set<LocalDate> dates = event.dates();
+        searches.asMap().keySet().removeIf(key -> dates.contains(key.date()));
+    }
+
+    // After FarePricingService has dropped its table, so a reload cannot cache the old fares again
+    @Order(10)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFareRatesChanged(FareRatesChangedEvent event) {
+        clear();
+    }
+
+    @Scheduled(cron = "0 5 0 * * *", zone = "Asia/Kolkata")
+    public void evictPastDates() {
+        LocalDate today = LocalDate.now(ZoneId.of("Asia/Kolkata"));
+        searches.asMap().keySet().removeIf(key -> key.date().isBefore(today));
+    }
+
+    public void clear() {
+        searches.invalidateAll();
+    }
+
+    // Trips currently patched by seat changes; tracks the cache, not its history
+    int patchableTrips() {
+        searches.cleanUp();
+        return tripsBySeatInventory.values().stream().mapToInt(Set::size).sum();
+    }
+
+    // Per-key compute, so a registration never lands in a set that is being dropped
+    private void register(LocalDate date, List<CachedTrip> trips) {
+        for (CachedTrip trip : trips) {
+            tripsBySeatInventory.compute(new SeatOccupancyService.TripDateKey(trip.match().trip().tripId(), date),
+                    (k, registered) -> {
+                        Set<CachedTrip> set = registered != null ? registered : ConcurrentHashMap.newKeySet();
+                        set.add(trip);
+                        return set;
+                    });
+        }
+    }
+
+    private void unregister(LocalDate date, List<CachedTrip> trips) {
+        for (CachedTrip trip : trips) {
+            tripsBySeatInventory.computeIfPresent(new SeatOccupancyService.TripDateKey(trip.match().trip().tripId(), date),
+                    (k, registered) -> {
+                        registered.remove(trip);
+                        return registered.isEmpty() ? null : registered;
+                    });
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.exception.BadRequestException;
+import com.busreservation.bus_reservation.exception.NotFoundException;
+import com.busreservation.bus_reservation.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived seat holds taken while a customer fills in passenger details.
+ * A hold claims its seat segments in {@link SeatOccupancyService} like a booking does, so search and the
+ * seat map count it as occupied and nobody else can book the seats; the booking then converts the hold
+ * instead of claiming again. Holds live only in memory and are expired by an {@link ExpiryWheel}.
+ * Every way out (convert, release, expiry) removes the hold from the map first, so its seats are freed
+ * or handed over exactly once.
+ * Holds are open to guests, so each client (signed-in user, else IP) may keep only a few at a time and
+ * only part of a trip's seats can be held at once; a bus cannot be locked up by one caller.
+ */
+@Service
+public class SeatHoldService {
+
+    private static final int WHEEL_SLOTS = 1024;
+    private static final long TICK_MILLIS = 1000;
+
+    public record SeatHold(String holdId, String owner, String client, Long tripId, LocalDate date,
+                           int fromSeq, int toSeq, List<String> seatNos, long expiresAtMillis) {
+    }
+
+    private final SeatOccupancyService seatOccupancyService;
+    private final LongSupplier clock;
+    private final long ttlMillis;
+    private final int maxSeats;
+    private final int maxPerClient;
+    private final int maxSeatsPerTrip;
+    private final ConcurrentMap<String, SeatHold> holds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> holdsByClient = new ConcurrentHashMap<>();
+    private final ConcurrentMap<SeatOccupancyService.TripDateKey, Integer> heldSeatsByTrip = new ConcurrentHashMap<>();
+    private final ExpiryWheel<SeatHold> wheel;
+    private final Counter expired;
+
+    @Autowired
+    public SeatHoldService(SeatOccupancyService seatOccupancyService, MeterRegistry meterRegistry,
+                           @Value("${app.holds.ttl-minutes:10}") int ttlMinutes,
+                           @Value("${app.holds.max-seats:6}") int maxSeats,
+                           @Value("${app.holds.max-per-client:2}") int maxPerClient,
+                           @Value("${app.holds.max-seats-per-trip:12}") int maxSeatsPerTrip) {
+        this(seatOccupancyService, meterRegistry, ttlMinutes, maxSeats, maxPerClient, maxSeatsPerTrip,
+                System::currentTimeMillis);
+    }
+
+    SeatHoldService(SeatOccupancyService seatOccupancyService, MeterRegistry meterRegistry,
+                    int ttlMinutes, int maxSeats, int maxPerClient, int maxSeatsPerTrip, LongSupplier clock) {
+        this.seatOccupancyService = seatOccupancyService;
+        this.clock = clock;
+        this.ttlMillis = ttlMinutes * 60_000L;
+        this.maxSeats = maxSeats;
+        this.maxPerClient = maxPerClient;
+        this.maxSeatsPerTrip = maxSeatsPerTrip;
+        this.wheel = new ExpiryWheel<>(WHEEL_SLOTS, TICK_MILLIS, clock.getAsLong());
+        this.expired = Counter.builder("booking.holds.expired")
+                .description("Seat holds that ran out before being booked or released")
+                .register(meterRegistry);
+        Gauge.builder("booking.holds.active", holds, Map::size)
+                .description("Seat holds currently claiming seats")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claims the seats all-or-nothing and holds them for the configured TTL.
+     * Throws "Seat X is not available" like a booking when any of them is taken.
+     * {@code owner} is the signed-in user (null for guests), {@code client} whom the hold counts against.
+     */
+    public SeatHold hold(String owner, String client, Long tripId, LocalDate date, List<String> seatNos,
+                         int fromSeq, int toSeq) {
+        if (seatNos.size() > maxSeats) {
+            throw new BadRequestException("At most " + maxSeats + " seats can be held at once");
+        }
+        rejectDuplicates(seatNos);
+
+        SeatOccupancyService.TripDateKey trip = new SeatOccupancyService.TripDateKey(tripId, date);
+        if (!reserve(holdsByClient, client, 1, maxPerClient)) {
+            throw new TooManyRequestsException("At most " + maxPerClient + " seat holds can be active at once");
+        }
+        if (!reserve(heldSeatsByTrip, trip, seatNos.size(), maxSeatsPerTrip)) {
+            unreserve(holdsByClient, client, 1);
+            throw new TooManyRequestsException("Too many seats on this trip are held right now, please retry shortly");
+        }
+        try {
+            seatOccupancyService.claimSeats(tripId, date, seatNos, fromSeq, toSeq);
+        } catch (RuntimeException e) {
+            unreserve(holdsByClient, client, 1);
+            unreserve(heldSeatsByTrip, trip, seatNos.size());
+            throw e;
+        }
+
+        SeatHold hold = new SeatHold(UUID.randomUUID().toString(), owner, client, tripId, date, fromSeq, toSeq,
+                List.copyOf(seatNos), clock.getAsLong() + ttlMillis);
+        holds.put(hold.holdId(), hold);
+        wheel.schedule(hold, hold.expiresAtMillis());
+        return hold;
+    }
+
+    public void release(String holdId, String owner) {
+        SeatHold hold = holds.get(holdId);
+        if (hold == null || !Objects.equals(hold.owner(), owner)) {
+            throw new NotFoundException("Seat hold not found");
+        }
+        if (holds.remove(holdId, hold)) {
+            forget(hold);
+            free(hold);
+        }
+    }
+
+    /**
+     * Hands the held seats to the booking being written in the current transaction.
+     * The booking must be for exactly the held trip, date, segment and seats.
+     * If that transaction rolls back the seats are freed; the hold is gone either way.
+     */
+    public void convert(String holdId, String owner, Long tripId, LocalDate date, List<String> seatNos,
+                        int fromSeq, int toSeq) {
+        SeatHold hold = holds.get(holdId);
+        if (hold == null || !Objects.equals(hold.owner(), owner) || hold.expiresAtMillis() <= clock.getAsLong()) {
+            throw new BadRequestException("Seat hold not found or expired");
+        }
+        rejectDuplicates(seatNos);
+        if (!hold.tripId().equals(tripId) || !hold.date().equals(date)
+                || hold.fromSeq() != fromSeq || hold.toSeq() != toSeq
+                || !Set.copyOf(hold.seatNos()).equals(Set.copyOf(seatNos))) {
+            throw new BadRequestException("Booking does not match the seat hold");
+        }
+        // Lost the race against expiry or a release
+        if (!holds.remove(holdId, hold)) {
+            throw new BadRequestException("Seat hold not found or expired");
+        }
+        forget(hold);
+        seatOccupancyService.adoptClaim(tripId, date, hold.seatNos(), fromSeq, toSeq);
+    }
+
+    /**
+     * Releases every hold on these trips on the date, e.g. when they are taken out of service.
+     */
+    public void releaseTrips(Collection<Long> tripIds, LocalDate date) {
+        for (SeatHold hold : holds.values()) {
+            if (hold.date().equals(date) && tripIds.contains(hold.tripId()) && holds.remove(hold.holdId(), hold)) {
+                forget(hold);
+                free(hold);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = TICK_MILLIS)
+    public void expireHolds() {
+        wheel.advance(clock.getAsLong(), hold -> {
+            if (holds.remove(hold.holdId(), hold)) {
+                expired.increment();
+                forget(hold);
+                free(hold);
+            }
+        });
+    }
+
+    private static void rejectDuplicates(List<String> seatNos) {
+        Set<String> seen = new HashSet<>();
+        for (String seatNo : seatNos) {
+            if (!seen.add(seatNo)) {
+                throw new BadRequestException("Seat " + seatNo + " is listed more than once");
+            }
+        }
+    }
+
+    // Takes {@code amount} from the key's allowance when it fits; atomic per key
+    private static <K> boolean reserve(ConcurrentMap<K, Integer> counts, K key, int amount, int limit) {
+        boolean[] reserved = {false};
+        counts.compute(key, (k, current) -> {
+            int used = current == null ? 0 : current;
+            if (used + amount > limit) return current;
+            reserved[0] = true;
+            return used + amount;
+        });
+        return reserved[0];
+    }
+
+    private static <K> void unreserve(ConcurrentMap<K, Integer> counts, K key, int amount) {
+        counts.computeIfPresent(key, (k, current) -> current - amount > 0 ? current - amount : null);
+    }
+
+    // The hold no longer counts against its client or trip
+    private void forget(SeatHold hold) {
+        unreserve(holdsByClient, hold.client(), 1);
+        unreserve(heldSeatsByTrip, new SeatOccupancyService.TripDateKey(hold.tripId(), hold.date()),
+                hold.seatNos().size());
+    }
+
+    private void free(SeatHold hold) {
+        seatOccupancyService.releaseSeats(hold.tripId(), hold.date(), hold.seatNos(), hold.fromSeq(), hold.toSeq());
+    }
+}
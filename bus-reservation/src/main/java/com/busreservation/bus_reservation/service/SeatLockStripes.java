@@ -0,0 +1,33 @@
+package com.busreservation.bus_reservation.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of locks striped by (tripId, date). Bookings on the same trip and day serialise
+ * their check-and-claim step; different trips almost always land on different stripes.
+ */
+@Component
+public class SeatLockStripes {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public SeatLockStripes(@Value("${app.booking.lock-stripes:256}") int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public ReentrantLock lockFor(Long tripId, LocalDate date) {
+        int h = tripId.hashCode() * 31 + date.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & mask];
+    }
+}
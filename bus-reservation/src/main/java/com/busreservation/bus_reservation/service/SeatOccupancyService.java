@@ -0,0 +1,279 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.event.SeatInventoryChangedEvent;
+import com.busreservation.bus_reservation.exception.BadRequestException;
+import com.busreservation.bus_reservation.repository.BookedSeatSegment;
+import com.busreservation.bus_reservation.repository.BookingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory seat occupancy per (tripId, date), loaded once from CONFIRMED bookings
+ * and kept current by claiming seats as bookings are made.
+ * Claims not yet backed by a committed booking row (bookings in flight, seat holds) are tracked per key,
+ * so an occupancy rebuilt from the bookings table keeps them.
+ * This is a per-node view: across nodes double sales are stopped by the booking transaction itself
+ * (trip row lock plus a check against committed rows, see {@link BookingService}).
+ */
+@Service
+public class SeatOccupancyService {
+
+    private final BookingRepository bookingRepository;
+    private final SeatLockStripes seatLockStripes;
+    private final Counter seatConflicts;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ConcurrentMap<TripDateKey, TripOccupancy> occupancies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TripDateKey, CompletableFuture<TripOccupancy>> loading = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TripDateKey, Set<Claim>> unconfirmed = new ConcurrentHashMap<>();
+
+    public SeatOccupancyService(BookingRepository bookingRepository, SeatLockStripes seatLockStripes,
+                                MeterRegistry meterRegistry, ApplicationEventPublisher eventPublisher) {
+        this.bookingRepository = bookingRepository;
+        this.seatLockStripes = seatLockStripes;
+        this.eventPublisher = eventPublisher;
+        this.seatConflicts = Counter.builder("booking.seat.conflicts")
+                .description("Booking requests rejected because a requested seat segment was already taken")
+                .register(meterRegistry);
+    }
+
+    public record TripDateKey(Long tripId, LocalDate date) {
+    }
+
+    private record Claim(String seatNo, int fromSeq, int toSeq) {
+    }
+
+    public TripOccupancy get(Long tripId, LocalDate date) {
+        TripDateKey key = new TripDateKey(tripId, date);
+        TripOccupancy occupancy = occupancies.get(key);
+        return occupancy != null ? occupancy : loadOnce(key);
+    }
+
+    // The bookings query runs outside the map's locks; concurrent readers of one key wait for a single load
+    private TripOccupancy loadOnce(TripDateKey key) {
+        CompletableFuture<TripOccupancy> mine = new CompletableFuture<>();
+        CompletableFuture<TripOccupancy> running = loading.putIfAbsent(key, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            TripOccupancy occupancy = occupancies.get(key);
+            if (occupancy == null) {
+                TripOccupancy loaded = load(key);
+                occupancy = Objects.requireNonNullElse(occupancies.putIfAbsent(key, loaded), loaded);
+            }
+            mine.complete(occupancy);
+            return occupancy;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    // True when counting this trip needs no bookings query
+    public boolean isLoaded(Long tripId, LocalDate date) {
+        return occupancies.containsKey(new TripDateKey(tripId, date));
+    }
+
+    /**
+     * Loads every missing (tripId, date) occupancy with a single bookings query.
+     */
+    public void preload(Collection<Long> tripIds, LocalDate date) {
+        List<Long> missing = tripIds.stream()
+                .filter(id -> !occupancies.containsKey(new TripDateKey(id, date)))
+                .toList();
+        if (missing.isEmpty()) return;
+
+        Map<Long, TripOccupancy> loaded = new HashMap<>();
+        missing.forEach(id -> loaded.put(id, new TripOccupancy()));
+        for (BookedSeatSegment segment : bookingRepository.findSeatSegmentsByTripIdIn(missing, date, "CONFIRMED")) {
+            loaded.get(segment.tripId()).occupy(segment.seatNo(), segment.fromStopSeq(), segment.toStopSeq());
+        }
+        loaded.forEach((id, occupancy) -> occupancies.putIfAbsent(new TripDateKey(id, date), occupancy));
+    }
+
+    public int availableSeats(Long tripId, LocalDate date, int capacity, int fromSeq, int toSeq) {
+        return capacity - get(tripId, date).countOccupied(fromSeq, toSeq);
+    }
+
+    /**
+     * Claims the seat segments all-or-nothing before the booking rows are written.
+     * The claim is what makes concurrent bookings for the same seat mutually exclusive:
+     * the first caller wins, later callers get "Seat X is not available".
+     * If the surrounding transaction rolls back, the claim is released again.
+     * Either way a {@link SeatInventoryChangedEvent} follows once the transaction has completed.
+     */
+    public void claimSeats(Long tripId, LocalDate date, List<String> seatNos, int fromSeq, int toSeq) {
+        TripDateKey key = new TripDateKey(tripId, date);
+        TripOccupancy loaded = get(tripId, date);
+
+        ReentrantLock lock = seatLockStripes.lockFor(tripId, date);
+        lock.lock();
+        try {
+            // Re-read under the lock: an evict may have swapped in a rebuilt occupancy since
+            TripOccupancy occupancy = occupancies.getOrDefault(key, loaded);
+            for (int i = 0; i < seatNos.size(); i++) {
+                if (!occupancy.tryOccupy(seatNos.get(i), fromSeq, toSeq)) {
+                    // Undo the seats already claimed by this request
+                    for (int j = 0; j < i; j++) {
+                        occupancy.release(seatNos.get(j), fromSeq, toSeq);
+                    }
+                    seatConflicts.increment();
+                    throw new BadRequestException("Seat " + seatNos.get(i) + " is not available");
+                }
+            }
+            // Added inside compute, so a concurrent forgetClaims cannot drop the set under it
+            unconfirmed.compute(key, (k, pending) -> {
+                Set<Claim> claims = pending != null ? pending : ConcurrentHashMap.newKeySet();
+                seatNos.forEach(seatNo -> claims.add(new Claim(seatNo, fromSeq, toSeq)));
+                return claims;
+            });
+        } finally {
+            lock.unlock();
+        }
+
+        releaseOnRollback(tripId, date, seatNos, fromSeq, toSeq);
+    }
+
+    /**
+     * Takes over seats claimed earlier (a seat hold) for the surrounding transaction:
+     * they stay occupied if it commits and are released if it rolls back, exactly like {@link #claimSeats}.
+     */
+    public void adoptClaim(Long tripId, LocalDate date, List<String> seatNos, int fromSeq, int toSeq) {
+        releaseOnRollback(tripId, date, seatNos, fromSeq, toSeq);
+    }
+
+    /**
+     * Frees seats that were claimed but never booked, e.g. an expired or abandoned seat hold.
+     */
+    public void releaseSeats(Long tripId, LocalDate date, List<String> seatNos, int fromSeq, int toSeq) {
+        TripDateKey key = new TripDateKey(tripId, date);
+        TripOccupancy occupancy = occupancies.get(key);
+        if (occupancy != null) {
+            seatNos.forEach(seatNo -> occupancy.release(seatNo, fromSeq, toSeq));
+        }
+        forgetClaims(key, seatNos, fromSeq, toSeq);
+        if (occupancy != null) {
+            eventPublisher.publishEvent(new SeatInventoryChangedEvent(tripId, date));
+        }
+    }
+
+    /**
+     * Frees the segments of cancelled bookings once the cancelling transaction commits; nothing if it rolls back.
+     * Occupancies not loaded yet need nothing: they will be read from the bookings without these rows.
+     */
+    public void releaseOnCommit(LocalDate date, Collection<BookedSeatSegment> segments) {
+        Runnable release = () -> {
+            Set<Long> tripIds = new LinkedHashSet<>();
+            for (BookedSeatSegment segment : segments) {
+                TripOccupancy occupancy = occupancies.get(new TripDateKey(segment.tripId(), date));
+                if (occupancy != null) {
+                    occupancy.release(segment.seatNo(), segment.fromStopSeq(), segment.toStopSeq());
+                }
+                tripIds.add(segment.tripId());
+            }
+            tripIds.forEach(tripId -> eventPublisher.publishEvent(new SeatInventoryChangedEvent(tripId, date)));
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release.run();
+                }
+            });
+        } else {
+            release.run();
+        }
+    }
+
+    /**
+     * Rebuilds the loaded occupancy of these trips on the date from the bookings table, e.g. after a bulk change
+     * to their bookings. Runs under each trip's stripe lock, so no claim lands on the occupancy being replaced,
+     * and re-applies claims not committed yet, which the bookings table cannot show.
+     */
+    public void evict(Collection<Long> tripIds, LocalDate date) {
+        for (Long tripId : tripIds) {
+            TripDateKey key = new TripDateKey(tripId, date);
+            ReentrantLock lock = seatLockStripes.lockFor(tripId, date);
+            lock.lock();
+            try {
+                if (occupancies.containsKey(key)) {
+                    // Taken before the query: a claim that commits after this point is in the rows it reads
+                    List<Claim> pending = List.copyOf(unconfirmed.getOrDefault(key, Set.of()));
+                    TripOccupancy rebuilt = load(key);
+                    pending.forEach(claim -> rebuilt.occupy(claim.seatNo(), claim.fromSeq(), claim.toSeq()));
+                    occupancies.put(key, rebuilt);
+                }
+            } finally {
+                lock.unlock();
+            }
+            eventPublisher.publishEvent(new SeatInventoryChangedEvent(tripId, date));
+        }
+    }
+
+    private void releaseOnRollback(Long tripId, LocalDate date, List<String> seatNos, int fromSeq, int toSeq) {
+        TripDateKey key = new TripDateKey(tripId, date);
+        SeatInventoryChangedEvent changed = new SeatInventoryChangedEvent(tripId, date);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        // The current occupancy, which is not the claimed one if an evict rebuilt it meanwhile
+                        TripOccupancy occupancy = occupancies.get(key);
+                        if (occupancy != null) {
+                            seatNos.forEach(seatNo -> occupancy.release(seatNo, fromSeq, toSeq));
+                        }
+                    }
+                    // Committed: the booking rows now carry the claim
+                    forgetClaims(key, seatNos, fromSeq, toSeq);
+                    eventPublisher.publishEvent(changed);
+                }
+            });
+        } else {
+            eventPublisher.publishEvent(changed);
+        }
+    }
+
+    private void forgetClaims(TripDateKey key, List<String> seatNos, int fromSeq, int toSeq) {
+        unconfirmed.computeIfPresent(key, (k, pending) -> {
+            seatNos.forEach(seatNo -> pending.remove(new Claim(seatNo, fromSeq, toSeq)));
+            return pending.isEmpty() ? null : pending;
+        });
+    }
+
+    // Past travel dates can no longer be searched or booked
+    @Scheduled(cron = "0 5 0 * * *", zone = "Asia/Kolkata")
+    public void evictPastDates() {
+        LocalDate today = LocalDate.now(ZoneId.of("Asia/Kolkata"));
+        occupancies.keySet().removeIf(key -> key.date().isBefore(today));
+        unconfirmed.keySet().removeIf(key -> key.date().isBefore(today));
+    }
+
+    private TripOccupancy load(TripDateKey key) {
+        TripOccupancy occupancy = new TripOccupancy();
+        for (BookedSeatSegment segment : bookingRepository.findSeatSegments(key.tripId(), key.date(), "CONFIRMED")) {
+            occupancy.occupy(segment.seatNo(), segment.fromStopSeq(), segment.toStopSeq());
+        }
+        return occupancy;
+    }
+}
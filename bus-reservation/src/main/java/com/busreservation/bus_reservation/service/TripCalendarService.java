@@ -0,0 +1,312 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.event.TripCalendarChangedEvent;
+import com.busreservation.bus_reservation.event.TripsImportedEvent;
+import com.busreservation.bus_reservation.model.Trip;
+import com.busreservation.bus_reservation.repository.BookingRepository;
+import com.busreservation.bus_reservation.repository.TripRepository;
+import com.busreservation.bus_reservation.repository.TripStopRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Turns the 31-day master plan into trips for real calendar dates.
+ * Imported rows are templates (no travel date); for every date in a rolling window this service keeps
+ * one dated trip per template of that day of month, with its own copy of the stops. Search, booking
+ * and availability only ever see dated trips, so each date is its own partition.
+ * Dated trips are resynced when their template's fingerprint changes, and past dates are archived in bulk.
+ * Syncs run one at a time on a node; across nodes a unique (template, date) key lets only one insert win,
+ * and the loser skips the date.
+ * A dated trip that stops running (e.g. an import flips it to Maintenance) has its confirmed bookings cancelled.
+ * Bookings store stop seqs, so a running dated trip with confirmed bookings never takes a new stop layout;
+ * it keeps its old one and is logged on every sync until the bookings are dealt with.
+ */
+@Service
+public class TripCalendarService {
+
+    private static final Logger log = LoggerFactory.getLogger(TripCalendarService.class);
+    private static final ZoneId ZONE = ZoneId.of("Asia/Kolkata");
+
+    // Set-based stop copy: the stops never leave the database
+    private static final String COPY_STOPS_SQL =
+            "INSERT INTO trip_stops (trip_id, seq_no, stop_name, arrive_time, depart_time, cumulative_km) " +
+            "SELECT ?, seq_no, stop_name, arrive_time, depart_time, cumulative_km FROM trip_stops WHERE trip_id = ?";
+
+    // Bookings made before trips were dated reference the template; move them onto the date's own trip,
+    // or occupancy (loaded by dated trip id) would show those seats as free
+    private static final String REPOINT_BOOKINGS_SQL =
+            "UPDATE bookings SET trip_id = (SELECT t.id FROM trips t " +
+            "WHERE t.template_trip_id = bookings.trip_id AND t.travel_date = bookings.booking_date) " +
+            "WHERE booking_date = ? AND trip_id IN " +
+            "(SELECT t.template_trip_id FROM trips t WHERE t.travel_date = ? AND t.template_trip_id IS NOT NULL)";
+
+    private final TripRepository tripRepository;
+    private final TripStopRepository tripStopRepository;
+    private final BookingRepository bookingRepository;
+    private final SeatOccupancyService seatOccupancyService;
+    private final SeatHoldService seatHoldService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int windowDays;
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    public TripCalendarService(TripRepository tripRepository, TripStopRepository tripStopRepository,
+                               BookingRepository bookingRepository, SeatOccupancyService seatOccupancyService,
+                               SeatHoldService seatHoldService, JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.calendar.window-days:90}") int windowDays) {
+        this.tripRepository = tripRepository;
+        this.tripStopRepository = tripStopRepository;
+        this.bookingRepository = bookingRepository;
+        this.seatOccupancyService = seatOccupancyService;
+        this.seatHoldService = seatHoldService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.windowDays = windowDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rollWindow();
+    }
+
+    /**
+     * Archives dates that have passed and fills the window up to {@code window-days} ahead.
+     */
+    @Scheduled(cron = "0 10 0 * * *", zone = "Asia/Kolkata")
+    public void rollWindow() {
+        LocalDate today = LocalDate.now(ZONE);
+        Set<LocalDate> changed = new TreeSet<>();
+
+        changed.addAll(transactionTemplate.execute(status -> {
+            List<LocalDate> past = tripRepository.findUnarchivedTravelDatesBefore(today);
+            if (!past.isEmpty()) {
+                int archived = tripRepository.archiveTravelDatesBefore(today);
+                log.info("Archived {} trips on {} past dates", archived, past.size());
+            }
+            return past;
+        }));
+        changed.addAll(syncDates(window(today)));
+
+        if (!changed.isEmpty()) {
+            eventPublisher.publishEvent(new TripCalendarChangedEvent(changed));
+        }
+    }
+
+    // Re-derive only the dates whose day of month the import touched
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTripsImported(TripsImportedEvent event) {
+        List<LocalDate> dates = window(LocalDate.now(ZONE)).stream()
+                .filter(date -> event.dayNos().contains(date.getDayOfMonth()))
+                .toList();
+        Set<LocalDate> changed = syncDates(dates);
+        if (!changed.isEmpty()) {
+            eventPublisher.publishEvent(new TripCalendarChangedEvent(changed));
+        }
+    }
+
+    private List<LocalDate> window(LocalDate today) {
+        return today.datesUntil(today.plusDays(windowDays)).toList();
+    }
+
+    // One transaction per date, so a long window does not hold one huge transaction.
+    // Imports, the nightly roll and startup can all get here at once; their syncs take turns.
+    private Set<LocalDate> syncDates(List<LocalDate> dates) {
+        syncLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            Set<LocalDate> changed = new TreeSet<>();
+            int trips = 0;
+            for (LocalDate date : dates) {
+                int synced;
+                try {
+                    synced = transactionTemplate.execute(status -> syncDate(date));
+                } catch (DataIntegrityViolationException e) {
+                    // Another node materialized this date first; its trips are the ones to keep
+                    log.warn("Dated trips for {} were written concurrently elsewhere, skipping the date", date);
+                    continue;
+                }
+                if (synced > 0) {
+                    changed.add(date);
+                    trips += synced;
+                }
+            }
+            if (!changed.isEmpty()) {
+                log.info("Materialized {} trips across {} dates in {} ms", trips, changed.size(),
+                        System.currentTimeMillis() - start);
+            }
+            return changed;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Creates or refreshes the dated trips of one date from its templates. Returns how many were written.
+     */
+    private int syncDate(LocalDate date) {
+        List<Trip> templates = tripRepository.findTemplatesByDayNo(date.getDayOfMonth());
+        if (templates.isEmpty()) return 0;
+
+        Map<Long, Trip> datedByTemplate = tripRepository.findByTravelDate(date).stream()
+                .filter(t -> t.getTemplateTripId() != null)
+                .collect(Collectors.toMap(Trip::getTemplateTripId, Function.identity()));
+
+        Map<Long, Long> outdated = new HashMap<>(); // dated trip id -> template id
+        for (Trip template : templates) {
+            Trip dated = datedByTemplate.get(template.getId());
+            if (dated != null && !Objects.equals(dated.getRowFingerprint(), template.getRowFingerprint())) {
+                outdated.put(dated.getId(), template.getId());
+            }
+        }
+        Set<Long> relaidOut = relaidOut(outdated);
+        Set<Long> booked = relaidOut.isEmpty() ? Set.of()
+                : new HashSet<>(bookingRepository.findTripIdsWithConfirmedBookings(relaidOut, date));
+
+        List<Trip> written = new ArrayList<>();
+        List<Trip> writtenTemplates = new ArrayList<>();
+        List<Long> refreshedIds = new ArrayList<>();
+        List<Long> relaidOutIds = new ArrayList<>();
+        List<Long> stoppedIds = new ArrayList<>();
+        int created = 0;
+        for (Trip template : templates) {
+            Trip dated = datedByTemplate.get(template.getId());
+            if (dated != null && Objects.equals(dated.getRowFingerprint(), template.getRowFingerprint())) {
+                continue;
+            }
+            if (dated != null && booked.contains(dated.getId()) && "Running".equals(template.getStatus())) {
+                log.warn("Trip {} on {} has confirmed bookings; not applying the new stop layout of template {} " +
+                        "until they are cancelled or moved", dated.getId(), date, template.getId());
+                continue;
+            }
+            if (dated == null) {
+                dated = Trip.builder()
+                        .dayNo(date.getDayOfMonth())
+                        .travelDate(date)
+                        .templateTripId(template.getId())
+                        .build();
+                created++;
+            } else {
+                refreshedIds.add(dated.getId());
+                if (relaidOut.contains(dated.getId())) {
+                    relaidOutIds.add(dated.getId());
+                }
+                if ("Running".equals(dated.getStatus()) && !"Running".equals(template.getStatus())) {
+                    stoppedIds.add(dated.getId());
+                }
+            }
+            dated.setBus(template.getBus());
+            dated.setFromCity(template.getFromCity());
+            dated.setToCity(template.getToCity());
+            dated.setDepartureTime(template.getDepartureTime());
+            dated.setArrivalTime(template.getArrivalTime());
+            dated.setTotalKm(template.getTotalKm());
+            dated.setPrice(template.getPrice());
+            dated.setStatus(template.getStatus());
+            dated.setImportBatchId(template.getImportBatchId());
+            dated.setRowFingerprint(template.getRowFingerprint());
+            written.add(dated);
+            writtenTemplates.add(template);
+        }
+        if (written.isEmpty()) return 0;
+
+        written = tripRepository.saveAllAndFlush(written);
+        if (!refreshedIds.isEmpty()) {
+            tripStopRepository.deleteByTripIdIn(refreshedIds);
+        }
+
+        List<Object[]> copies = new ArrayList<>(written.size());
+        for (int i = 0; i < written.size(); i++) {
+            copies.add(new Object[]{written.get(i).getId(), writtenTemplates.get(i).getId()});
+        }
+        jdbcTemplate.batchUpdate(COPY_STOPS_SQL, copies, copies.size(), (ps, copy) -> {
+            ps.setLong(1, (Long) copy[0]);
+            ps.setLong(2, (Long) copy[1]);
+        });
+
+        if (created > 0) {
+            int repointed = jdbcTemplate.update(REPOINT_BOOKINGS_SQL, date, date);
+            if (repointed > 0) {
+                log.info("Moved {} bookings on {} from template trips to dated trips", repointed, date);
+            }
+        }
+
+        if (!stoppedIds.isEmpty()) {
+            cancelBookings(date, stoppedIds);
+        }
+        if (!refreshedIds.isEmpty()) {
+            // Cached occupancy and holds carry stop seqs of the old layout
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    if (!relaidOutIds.isEmpty()) {
+                        seatHoldService.releaseTrips(relaidOutIds, date);
+                    }
+                    seatOccupancyService.evict(refreshedIds, date);
+                }
+            });
+        }
+        return written.size();
+    }
+
+    // Dated trips (keys) whose seq -> stop mapping differs from their template's (values)
+    private Set<Long> relaidOut(Map<Long, Long> templateByDated) {
+        if (templateByDated.isEmpty()) return Set.of();
+
+        Set<Long> ids = new HashSet<>(templateByDated.keySet());
+        ids.addAll(templateByDated.values());
+        Map<Long, List<String>> layouts = new HashMap<>();
+        for (Object[] row : tripStopRepository.findLayoutsByTripIdIn(ids)) {
+            layouts.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                    .add(row[1] + ":" + RouteIndex.normalize((String) row[2]));
+        }
+
+        Set<Long> changed = new HashSet<>();
+        templateByDated.forEach((datedId, templateId) -> {
+            if (!Objects.equals(layouts.get(datedId), layouts.get(templateId))) {
+                changed.add(datedId);
+            }
+        });
+        return changed;
+    }
+
+    // One UPDATE however many bookings there are. Once it commits the trips' holds are released and their
+    // occupancy is dropped rather than patched: a booking committing just before the UPDATE is cancelled too,
+    // and only a reload from the bookings table is sure to account for it.
+    private void cancelBookings(LocalDate date, List<Long> tripIds) {
+        int cancelled = bookingRepository.cancelConfirmedByTripIdIn(tripIds, date);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                seatHoldService.releaseTrips(tripIds, date);
+                seatOccupancyService.evict(tripIds, date);
+            }
+        });
+        if (cancelled > 0) {
+            log.info("Cancelled {} bookings on {} for {} trips taken out of service", cancelled, date, tripIds.size());
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.dto.ExcelImportDto;
+import com.busreservation.bus_reservation.model.Bus;
+import com.busreservation.bus_reservation.model.Trip;
+import com.busreservation.bus_reservation.repository.BusRepository;
+import com.busreservation.bus_reservation.repository.TripRepository;
+import com.busreservation.bus_reservation.repository.TripStopRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Set-based write path for the Excel importer. A chunk of rows costs two lookups
+ * (buses, trips for the affected days) plus a handful of batched statements,
+ * instead of several round trips per row.
+ * Rows whose fingerprint matches the stored trip are skipped, and changed trips
+ * have their stops updated in place by seqNo. Rows are master-plan templates;
+ * {@link TripCalendarService} derives the bookable dated trips from them.
+ */
+@Component
+public class TripImportWriter {
+
+    private static final String INSERT_STOP_SQL =
+            "INSERT INTO trip_stops (trip_id, seq_no, stop_name, arrive_time, depart_time, cumulative_km) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_STOP_SQL =
+            "UPDATE trip_stops SET stop_name = ?, arrive_time = ?, depart_time = ?, cumulative_km = ? WHERE trip_id = ? AND seq_no = ?";
+    private static final String DELETE_STOPS_FROM_SQL =
+            "DELETE FROM trip_stops WHERE trip_id = ? AND seq_no >= ?";
+    private static final String INSERT_SEAT_SQL =
+            "INSERT INTO seats (bus_id, seat_no) VALUES (?, ?)";
+
+    private final BusRepository busRepository;
+    private final TripRepository tripRepository;
+    private final TripStopRepository tripStopRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int jdbcBatchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public TripImportWriter(BusRepository busRepository, TripRepository tripRepository,
+                            TripStopRepository tripStopRepository, JdbcTemplate jdbcTemplate,
+                            @Value("${app.import.jdbc-batch-size:500}") int jdbcBatchSize) {
+        this.busRepository = busRepository;
+        this.tripRepository = tripRepository;
+        this.tripStopRepository = tripStopRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    public record ImportedTrip(ExcelImportDto.ExcelRow row, List<ExcelImportDto.ParsedStop> stops, String fingerprint) {
+        public ImportedTrip(ExcelImportDto.ExcelRow row, List<ExcelImportDto.ParsedStop> stops) {
+            this(row, stops, fingerprint(row, stops));
+        }
+    }
+
+    /**
+     * Distinct trips of a chunk by outcome; rows repeated within the chunk count once.
+     * {@code changedDays} are the days of the inserted and updated trips.
+     */
+    public record WriteResult(int inserted, int updated, int unchanged, Set<Integer> changedDays) {
+    }
+
+    private record TripKey(Integer dayNo, String busId) {
+    }
+
+    /**
+     * Writes a chunk of parsed rows. When a (day, bus) appears more than once, the last row wins.
+     * Must run inside a transaction.
+     */
+    public WriteResult write(List<ImportedTrip> chunk, String batchId) {
+        if (chunk.isEmpty()) return new WriteResult(0, 0, 0, Set.of());
+
+        Map<TripKey, ImportedTrip> rowsByTrip = new LinkedHashMap<>();
+        for (ImportedTrip imported : chunk) {
+            rowsByTrip.put(new TripKey(imported.row().getDay(), imported.row().getBusId()), imported);
+        }
+
+        // Preload buses and trips for the affected days in two queries
+        Set<String> busIds = rowsByTrip.keySet().stream().map(TripKey::busId).collect(Collectors.toSet());
+        Set<Integer> days = rowsByTrip.keySet().stream().map(TripKey::dayNo).collect(Collectors.toSet());
+
+        Map<String, Bus> buses = busRepository.findAllById(busIds).stream()
+                .collect(Collectors.toMap(Bus::getBusId, Function.identity()));
+        Map<TripKey, Trip> existingTrips = tripRepository.findByDayNoInAndBusIdIn(days, busIds).stream()
+                .collect(Collectors.toMap(t -> new TripKey(t.getDayNo(), t.getBus().getBusId()), Function.identity(),
+                        (a, b) -> a));
+
+        // Drop rows that have not changed since the last import before touching anything else
+        int unchanged = 0;
+        for (Iterator<Map.Entry<TripKey, ImportedTrip>> it = rowsByTrip.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<TripKey, ImportedTrip> entry = it.next();
+            Trip trip = existingTrips.get(entry.getKey());
+            if (trip != null && entry.getValue().fingerprint().equals(trip.getRowFingerprint())) {
+                it.remove();
+                unchanged++;
+            }
+        }
+        if (rowsByTrip.isEmpty()) {
+            entityManager.clear();
+            return new WriteResult(0, 0, unchanged, Set.of());
+        }
+
+        // Create buses seen for the first time
+        List<Bus> newBuses = new ArrayList<>();
+        for (ImportedTrip imported : rowsByTrip.values()) {
+            ExcelImportDto.ExcelRow row = imported.row();
+            if (!buses.containsKey(row.getBusId())) {
+                Bus bus = Bus.builder()
+                        .busId(row.getBusId())
+                        .busType(row.getBusType())
+                        .capacity(row.getCapacity())
+                        .build();
+                buses.put(bus.getBusId(), bus);
+                newBuses.add(bus);
+            }
+        }
+        // Assigned ids: persist directly so Spring Data does not merge (and SELECT) each new bus
+        newBuses.forEach(entityManager::persist);
+
+        // Diff trips in memory: update the ones we have, create the rest
+        List<Trip> trips = new ArrayList<>(rowsByTrip.size());
+        List<Long> updatedTripIds = new ArrayList<>();
+        for (Map.Entry<TripKey, ImportedTrip> entry : rowsByTrip.entrySet()) {
+            ExcelImportDto.ExcelRow row = entry.getValue().row();
+            Trip trip = existingTrips.get(entry.getKey());
+            if (trip != null) {
+                updatedTripIds.add(trip.getId());
+            } else {
+                trip = Trip.builder()
+                        .dayNo(row.getDay())
+                        .bus(buses.get(row.getBusId()))
+                        .build();
+            }
+            trip.setFromCity(row.getFromCity());
+            trip.setToCity(row.getDestination());
+            trip.setDepartureTime(row.getDepartureTime());
+            trip.setArrivalTime(row.getArrivalTime());
+            trip.setTotalKm(row.getTotalKm());
+            trip.setPrice(row.getFarePerSeat() != null ? row.getFarePerSeat() : 0);
+            trip.setStatus(row.getMaintenanceStatus());
+            trip.setImportBatchId(batchId);
+            trip.setRowFingerprint(entry.getValue().fingerprint());
+            trips.add(trip);
+        }
+        trips = tripRepository.saveAll(trips);
+
+        // Trip rows must exist before stops reference them
+        entityManager.flush();
+
+        List<Object[]> seatRows = new ArrayList<>();
+        for (Bus bus : newBuses) {
+            for (int i = 1; i <= bus.getCapacity(); i++) {
+                seatRows.add(new Object[]{bus.getBusId(), String.valueOf(i)});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_SEAT_SQL, seatRows, jdbcBatchSize, (ps, seat) -> {
+            ps.setString(1, (String) seat[0]);
+            ps.setString(2, (String) seat[1]);
+        });
+
+        // Stops of changed trips are matched by seqNo: overlapping ones are updated in place,
+        // extra new ones inserted and surplus old ones deleted, so unchanged stop rows keep their ids
+        Map<Long, Integer> existingStopCounts = new HashMap<>();
+        if (!updatedTripIds.isEmpty()) {
+            for (Object[] count : tripStopRepository.countByTripIdIn(updatedTripIds)) {
+                existingStopCounts.put((Long) count[0], ((Number) count[1]).intValue());
+            }
+        }
+
+        List<Object[]> insertRows = new ArrayList<>();
+        List<Object[]> updateRows = new ArrayList<>();
+        List<Object[]> truncateRows = new ArrayList<>();
+        Iterator<ImportedTrip> rows = rowsByTrip.values().iterator();
+        for (Trip trip : trips) {
+            List<ExcelImportDto.ParsedStop> stops = rows.next().stops();
+            int existingStops = existingStopCounts.getOrDefault(trip.getId(), 0);
+            for (ExcelImportDto.ParsedStop stop : stops) {
+                (stop.getSequence() < existingStops ? updateRows : insertRows).add(new Object[]{trip.getId(), stop});
+            }
+            if (existingStops > stops.size()) {
+                truncateRows.add(new Object[]{trip.getId(), stops.size()});
+            }
+        }
+        jdbcTemplate.batchUpdate(DELETE_STOPS_FROM_SQL, truncateRows, jdbcBatchSize, (ps, truncate) -> {
+            ps.setLong(1, (Long) truncate[0]);
+            ps.setInt(2, (Integer) truncate[1]);
+        });
+        jdbcTemplate.batchUpdate(UPDATE_STOP_SQL, updateRows, jdbcBatchSize, (ps, stopRow) -> {
+            ExcelImportDto.ParsedStop stop = (ExcelImportDto.ParsedStop) stopRow[1];
+            ps.setString(1, stop.getStopName());
+            setTime(ps, 2, stop.getArriveTime());
+            setTime(ps, 3, stop.getDepartTime());
+            ps.setInt(4, stop.getCumulativeKm());
+            ps.setLong(5, (Long) stopRow[0]);
+            ps.setInt(6, stop.getSequence());
+        });
+        jdbcTemplate.batchUpdate(INSERT_STOP_SQL, insertRows, jdbcBatchSize, (ps, stopRow) -> {
+            ExcelImportDto.ParsedStop stop = (ExcelImportDto.ParsedStop) stopRow[1];
+            ps.setLong(1, (Long) stopRow[0]);
+            ps.setInt(2, stop.getSequence());
+            ps.setString(3, stop.getStopName());
+            setTime(ps, 4, stop.getArriveTime());
+            setTime(ps, 5, stop.getDepartTime());
+            ps.setInt(6, stop.getCumulativeKm());
+        });
+
+        // Keep the persistence context from growing across chunks
+        entityManager.clear();
+
+        Set<Integer> changedDays = rowsByTrip.keySet().stream().map(TripKey::dayNo).collect(Collectors.toSet());
+        return new WriteResult(trips.size() - updatedTripIds.size(), updatedTripIds.size(), unchanged, changedDays);
+    }
+
+    /**
+     * SHA-256 over every field the writer stores for a row, stops included, as 64 hex chars.
+     */
+    static String fingerprint(ExcelImportDto.ExcelRow row, List<ExcelImportDto.ParsedStop> stops) {
+        StringBuilder content = new StringBuilder(256);
+        append(content, row.getDay(), row.getBusId(), row.getBusType(), row.getCapacity(),
+                row.getFromCity(), row.getDestination(), row.getDepartureTime(), row.getArrivalTime(),
+                row.getTotalKm(), row.getFarePerSeat(), row.getMaintenanceStatus());
+        for (ExcelImportDto.ParsedStop stop : stops) {
+            append(content, stop.getSequence(), stop.getStopName(), stop.getArriveTime(),
+                    stop.getDepartTime(), stop.getCumulativeKm());
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Unit separator between fields so adjacent values cannot run into each other
+    private static void append(StringBuilder content, Object... values) {
+        for (Object value : values) {
+            content.append(value).append('\u001F');
+        }
+        content.append('\u001E');
+    }
+
+    private static void setTime(PreparedStatement ps, int index, LocalTime time) throws SQLException {
+        if (time == null) {
+            ps.setNull(index, Types.TIME);
+        } else {
+            ps.setObject(index, time);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.busreservation.bus_reservation.service;
+
+import java.util.*;
+
+/**
+ * Seat occupancy of one trip on one travel date.
+ * Each seat owns a long[] bitmask where bit i is the leg between stop seqNo i and i + 1,
+ * so a segment [fromSeq, toSeq) is free when its mask AND the seat's mask is zero.
+ */
+public class TripOccupancy {
+
+    private final Map<String, Integer> seatIndex = new HashMap<>();
+    private String[] seatNos = new String[16];
+    private long[][] masks = new long[16][];
+
+    public synchronized boolean isFree(String seatNo, int fromSeq, int toSeq) {
+        Integer idx = seatIndex.get(seatNo);
+        return idx == null || !overlaps(masks[idx], fromSeq, toSeq);
+    }
+
+    public synchronized int countOccupied(int fromSeq, int toSeq) {
+        int occupied = 0;
+        for (int i = 0; i < seatIndex.size(); i++) {
+            if (overlaps(masks[i], fromSeq, toSeq)) occupied++;
+        }
+        return occupied;
+    }
+
+    public synchronized Set<String> occupiedSeats(int fromSeq, int toSeq) {
+        Set<String> occupied = new HashSet<>();
+        for (int i = 0; i < seatIndex.size(); i++) {
+            if (overlaps(masks[i], fromSeq, toSeq)) occupied.add(seatNos[i]);
+        }
+        return occupied;
+    }
+
+    /**
+     * Atomically occupies the segment if it is still free; the compare-and-set every claim goes through.
+     */
+    public synchronized boolean tryOccupy(String seatNo, int fromSeq, int toSeq) {
+        if (!isFree(seatNo, fromSeq, toSeq)) return false;
+        occupy(seatNo, fromSeq, toSeq);
+        return true;
+    }
+
+    public synchronized void occupy(String seatNo, int fromSeq, int toSeq) {
+        int idx = indexOf(seatNo);
+        long[] seatMask = ensureWords(idx, wordCount(toSeq));
+        for (int w = fromSeq >>> 6; w < wordCount(toSeq); w++) {
+            seatMask[w] |= wordMask(w, fromSeq, toSeq);
+        }
+    }
+
+    public synchronized void release(String seatNo, int fromSeq, int toSeq) {
+        Integer idx = seatIndex.get(seatNo);
+        if (idx == null) return;
+        long[] seatMask = masks[idx];
+        for (int w = fromSeq >>> 6; w < Math.min(seatMask.length, wordCount(toSeq)); w++) {
+            seatMask[w] &= ~wordMask(w, fromSeq, toSeq);
+        }
+    }
+
+    private int indexOf(String seatNo) {
+        Integer idx = seatIndex.get(seatNo);
+        if (idx != null) return idx;
+
+        int next = seatIndex.size();
+        if (next == seatNos.length) {
+            seatNos = Arrays.copyOf(seatNos, next * 2);
+            masks = Arrays.copyOf(masks, next * 2);
+        }
+        seatNos[next] = seatNo;
+        masks[next] = new long[1];
+        seatIndex.put(seatNo, next);
+        return next;
+    }
+
+    private long[] ensureWords(int idx, int words) {
+        if (masks[idx].length < words) {
+            masks[idx] = Arrays.copyOf(masks[idx], words);
+        }
+        return masks[idx];
+    }
+
+    private static boolean overlaps(long[] seatMask, int fromSeq, int toSeq) {
+        int lastWord = Math.min(seatMask.length, wordCount(toSeq));
+        for (int w = fromSeq >>> 6; w < lastWord; w++) {
+            if ((seatMask[w] & wordMask(w, fromSeq, toSeq)) != 0) return true;
+        }
+        return false;
+    }
+
+    private static int wordCount(int toSeq) {
+        return (toSeq + 63) >>> 6;
+    }
+
+    // Bits of word w that fall inside legs [fromSeq, toSeq)
+    private static long wordMask(int w, int fromSeq, int toSeq) {
+        int lo = Math.max(fromSeq, w << 6);
+        int hi = Math.min(toSeq, (w + 1) << 6);
+        if (lo >= hi) return 0L;
+        int width = hi - lo;
+        long bits = width == 64 ? -1L : (1L << width) - 1;
+        return bits << (lo - (w << 6));
+    }
+}
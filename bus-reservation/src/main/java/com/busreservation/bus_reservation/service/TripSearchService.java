@@ -4,100 +4,119 @@ import com.busreservation.bus_reservation.dto.TripSearchDto;
 import com.busreservation.bus_reservation.exception.BadRequestException;
 import com.busreservation.bus_reservation.model.*;
 import com.busreservation.bus_reservation.repository.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
 public class TripSearchService {
 
     private final TripRepository tripRepository;
-    private final TripStopRepository tripStopRepository;
-    private final BookingRepository bookingRepository;
-    private final FareRateRepository fareRateRepository;
+    private final FarePricingService farePricingService;
     private final SeatRepository seatRepository;
-
-    public TripSearchService(TripRepository tripRepository, TripStopRepository tripStopRepository,
-                           BookingRepository bookingRepository, FareRateRepository fareRateRepository,
-                           SeatRepository seatRepository) {
+    private final RouteIndexService routeIndexService;
+    private final SeatOccupancyService seatOccupancyService;
+    private final SearchResultCache searchResultCache;
+    private final AvailabilityEvaluator availabilityEvaluator;
+
+    // Per-phase search timings: route lookup, availability count (occupancy load included), fare lookup
+    private final Timer routeTimer;
+    private final Timer availabilityTimer;
+    private final Timer fareTimer;
+
+    public TripSearchService(TripRepository tripRepository, FarePricingService farePricingService,
+                           SeatRepository seatRepository, RouteIndexService routeIndexService,
+                           SeatOccupancyService seatOccupancyService, SearchResultCache searchResultCache,
+                           AvailabilityEvaluator availabilityEvaluator, MeterRegistry meterRegistry) {
         this.tripRepository = tripRepository;
-        this.tripStopRepository = tripStopRepository;
-        this.bookingRepository = bookingRepository;
-        this.fareRateRepository = fareRateRepository;
+        this.farePricingService = farePricingService;
         this.seatRepository = seatRepository;
+        this.routeIndexService = routeIndexService;
+        this.seatOccupancyService = seatOccupancyService;
+        this.searchResultCache = searchResultCache;
+        this.availabilityEvaluator = availabilityEvaluator;
+        this.routeTimer = phaseTimer(meterRegistry, "route");
+        this.availabilityTimer = phaseTimer(meterRegistry, "availability");
+        this.fareTimer = phaseTimer(meterRegistry, "fare");
+    }
+
+    private static Timer phaseTimer(MeterRegistry meterRegistry, String phase) {
+        return Timer.builder("search.phase")
+                .description("Time spent in one phase of a trip search")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     public TripSearchDto.SearchResponse searchTrips(TripSearchDto.SearchRequest request) {
         // Validate date is not in the past
         validateFutureDate(request.getDate());
 
-        // Map date to day number (1-31)
-        int dayNo = request.getDate().getDayOfMonth();
+        // Candidates, fares included, come from the cache; a trip's seat count is recounted only after its seats change
+        RouteIndex index = routeIndexService.current();
+        SearchResultCache.SearchKey key = SearchResultCache.SearchKey.of(request.getDate(), request.getFrom(),
+                request.getTo(), request.getCategory());
+        List<SearchResultCache.CachedTrip> candidates = searchResultCache.get(key,
+                index.dayVersion(request.getDate()), () -> loadCandidates(index, request));
+
+        // Check if departure time is valid for today
+        LocalTime now = request.getDate().equals(LocalDate.now(ZoneId.of("Asia/Kolkata")))
+                ? LocalTime.now(ZoneId.of("Asia/Kolkata")) : null;
+
+        List<SearchResultCache.CachedTrip> eligible = new ArrayList<>(candidates.size());
+        for (SearchResultCache.CachedTrip candidate : candidates) {
+            LocalTime departs = candidate.match().from().departTime();
+            if (now != null && departs != null && departs.isBefore(now)) {
+                continue; // Skip past departures for today
+            }
+            eligible.add(candidate);
+        }
 
-        // Get all trips for this day
-        List<Trip> trips = tripRepository.findByDayNoAndStatus(dayNo, "Running");
+        // Calculate available seats for each segment; null means unknown (occupancy load missed the deadline or failed)
+        long phaseStart = System.nanoTime();
+        Integer[] seats = availabilityEvaluator.availableSeats(eligible);
+        long availabilityNanos = System.nanoTime() - phaseStart;
 
         List<TripSearchDto.TripResult> results = new ArrayList<>();
-
-        for (Trip trip : trips) {
-            // Get stops for this trip
-            List<TripStop> stops = tripStopRepository.findByTripIdOrderBySeqNoAsc(trip.getId());
-            
-            // Find from and to stops
-            TripStop fromStop = findStopByName(stops, request.getFrom());
-            TripStop toStop = findStopByName(stops, request.getTo());
-
-            if (fromStop != null && toStop != null && fromStop.getSeqNo() < toStop.getSeqNo()) {
-                // Check if departure time is valid for today
-                if (request.getDate().equals(LocalDate.now(ZoneId.of("Asia/Kolkata")))) {
-                    LocalTime now = LocalTime.now(ZoneId.of("Asia/Kolkata"));
-                    if (fromStop.getDepartTime() != null && fromStop.getDepartTime().isBefore(now)) {
-                        continue; // Skip past departures for today
-                    }
-                }
-
-                // Filter by category if specified
-                if (request.getCategory() != null && !request.getCategory().isEmpty() && 
-                    !trip.getBus().getBusType().equalsIgnoreCase(request.getCategory())) {
-                    continue;
-                }
-
-                // Calculate available seats for this segment
-                int availableSeats = calculateAvailableSeats(trip.getId(), request.getDate(), 
-                                                           fromStop.getSeqNo(), toStop.getSeqNo());
-
-                if (availableSeats >= request.getSeats()) {
-                    // Calculate fare
-                    int distanceKm = toStop.getCumulativeKm() - fromStop.getCumulativeKm();
-                    int fareAmount = calculateFare(trip.getBus().getBusType(), distanceKm);
-
-                    String route = trip.getFromCity() + " → " + trip.getToCity();
-
-                    results.add(TripSearchDto.TripResult.builder()
-                            .tripId(trip.getId())
-                            .busId(trip.getBus().getBusId())
-                            .busType(trip.getBus().getBusType())
-                            .route(route)
-                            .departureTime(trip.getDepartureTime())
-                            .arrivalTime(trip.getArrivalTime())
-                            .boardingTime(fromStop.getDepartTime())
-                            .droppingTime(toStop.getArriveTime())
-                            .distanceKm(distanceKm)
-                            .fareAmount(fareAmount)
-                            .availableSeats(availableSeats)
-                            .fromStopSeq(fromStop.getSeqNo())
-                            .toStopSeq(toStop.getSeqNo())
-                            .build());
-                }
+        for (int i = 0; i < eligible.size(); i++) {
+            SearchResultCache.CachedTrip candidate = eligible.get(i);
+            RouteIndex.TripEntry trip = candidate.match().trip();
+            RouteIndex.StopVisit fromStop = candidate.match().from();
+            RouteIndex.StopVisit toStop = candidate.match().to();
+            Integer availableSeats = seats[i];
+
+            if (availableSeats == null || availableSeats >= request.getSeats()) {
+                String route = trip.fromCity() + " → " + trip.toCity();
+
+                results.add(TripSearchDto.TripResult.builder()
+                        .tripId(trip.tripId())
+                        .busId(trip.busId())
+                        .busType(trip.busType())
+                        .route(route)
+                        .departureTime(trip.departureTime())
+                        .arrivalTime(trip.arrivalTime())
+                        .boardingTime(fromStop.departTime())
+                        .droppingTime(toStop.arriveTime())
+                        .distanceKm(candidate.distanceKm())
+                        .fareAmount(candidate.fareAmount())
+                        .availableSeats(availableSeats)
+                        .fromStopSeq(fromStop.seqNo())
+                        .toStopSeq(toStop.seqNo())
+                        .build());
             }
         }
 
+        availabilityTimer.record(availabilityNanos, TimeUnit.NANOSECONDS);
+
         return TripSearchDto.SearchResponse.builder()
                 .searchDate(request.getDate())
                 .fromStop(request.getFrom())
@@ -106,6 +125,39 @@ public class TripSearchService {
                 .build();
     }
 
+    // Cache miss: route lookup, category filter and fares for one search key; occupancy is loaded when counting
+    private List<SearchResultCache.CachedTrip> loadCandidates(RouteIndex index, TripSearchDto.SearchRequest request) {
+        long started = System.nanoTime();
+
+        // Trips of this date serving both stops in order, read straight off the date's connection table
+        List<RouteIndex.RouteMatch> matches = index.findRoutes(request.getDate(), request.getFrom(), request.getTo());
+
+        List<RouteIndex.RouteMatch> filtered = new ArrayList<>();
+        for (RouteIndex.RouteMatch match : matches) {
+            // Filter by category if specified
+            if (request.getCategory() != null && !request.getCategory().isEmpty() &&
+                !match.trip().busType().equalsIgnoreCase(request.getCategory())) {
+                continue;
+            }
+            filtered.add(match);
+        }
+
+        long routed = System.nanoTime();
+        routeTimer.record(routed - started, TimeUnit.NANOSECONDS);
+
+        List<SearchResultCache.CachedTrip> candidates = new ArrayList<>(filtered.size());
+        for (RouteIndex.RouteMatch match : filtered) {
+            int distanceKm = match.to().cumulativeKm() - match.from().cumulativeKm();
+            int fareAmount = farePricingService.calculateFare(match.trip().busType(), distanceKm);
+            candidates.add(new SearchResultCache.CachedTrip(match, request.getDate(), distanceKm, fareAmount));
+        }
+        fareTimer.record(System.nanoTime() - routed, TimeUnit.NANOSECONDS);
+
+        return candidates;
+    }
+
+    // Read-only transaction so the trip's lazy bus can load (open-in-view is off)
+    @Transactional(readOnly = true)
     public TripSearchDto.SeatAvailabilityResponse getSeatAvailability(TripSearchDto.SeatAvailabilityRequest request) {
         validateFutureDate(request.getDate());
 
@@ -113,13 +165,12 @@ public class TripSearchService {
                 .orElseThrow(() -> new BadRequestException("Trip not found"));
 
         List<Seat> allSeats = seatRepository.findByBusId(trip.getBus().getBusId());
-        Set<String> bookedSeats = getBookedSeatsForSegment(request.getTripId(), request.getDate(), 
-                                                          request.getFromSeq(), request.getToSeq());
+        TripOccupancy occupancy = seatOccupancyService.get(request.getTripId(), request.getDate());
 
         List<TripSearchDto.SeatInfo> seatInfos = allSeats.stream()
                 .map(seat -> TripSearchDto.SeatInfo.builder()
                         .seatNo(seat.getSeatNo())
-                        .available(!bookedSeats.contains(seat.getSeatNo()))
+                        .available(occupancy.isFree(seat.getSeatNo(), request.getFromSeq(), request.getToSeq()))
                         .layout(determineSeatLayout(seat.getSeatNo(), trip.getBus().getBusType()))
                         .build())
                 .collect(Collectors.toList());
@@ -140,46 +191,6 @@ public class TripSearchService {
         }
     }
 
-    private TripStop findStopByName(List<TripStop> stops, String stopName) {
-        return stops.stream()
-                .filter(stop -> stop.getStopName().equalsIgnoreCase(stopName))
-                .findFirst()
-                .orElse(null);
-    }
-
-    private int calculateAvailableSeats(Long tripId, LocalDate date, Integer fromSeq, Integer toSeq) {
-        Trip trip = tripRepository.findById(tripId).orElse(null);
-        if (trip == null) return 0;
-
-        Set<String> bookedSeats = getBookedSeatsForSegment(tripId, date, fromSeq, toSeq);
-        return trip.getBus().getCapacity() - bookedSeats.size();
-    }
-
-    private Set<String> getBookedSeatsForSegment(Long tripId, LocalDate date, Integer fromSeq, Integer toSeq) {
-        List<Booking> bookings = bookingRepository.findByTripIdAndBookingDateAndStatus(tripId, date, "CONFIRMED");
-        Set<String> bookedSeats = new HashSet<>();
-
-        for (Booking booking : bookings) {
-            // Check if segments overlap: [fromSeq, toSeq) overlaps with [booking.fromSeq, booking.toSeq)
-            if (fromSeq < booking.getToStopSeq() && booking.getFromStopSeq() < toSeq) {
-                bookedSeats.add(booking.getSeatNo());
-            }
-        }
-
-        return bookedSeats;
-    }
-
-    private int calculateFare(String busType, int distanceKm) {
-        FareRate fareRate = fareRateRepository.findById(busType).orElse(null);
-        if (fareRate == null) {
-            // Default rate if not found
-            return distanceKm * 2; // ₹2 per km default
-        }
-
-        BigDecimal fare = fareRate.getRatePerKm().multiply(BigDecimal.valueOf(distanceKm));
-        return fare.intValue();
-    }
-
     private String determineSeatLayout(String seatNo, String busType) {
         // Simple layout logic - can be enhanced based on actual seat arrangements
         try {
@@ -0,0 +1,36 @@
+-- Everything added on top of the baseline schema: dated trips and import fingerprints on trips,
+-- and the pooled sequence tables used for batched trip and booking inserts.
+-- Written to be re-runnable, so databases that already picked up some of it from ddl-auto=update work too.
+
+set @ddl = (select if(count(*) = 0, 'alter table trips add column travel_date date', 'do 0')
+            from information_schema.columns
+            where table_schema = database() and table_name = 'trips' and column_name = 'travel_date');
+prepare stmt from @ddl;
+execute stmt;
+deallocate prepare stmt;
+
+set @ddl = (select if(count(*) = 0, 'alter table trips add column template_trip_id bigint', 'do 0')
+            from information_schema.columns
+            where table_schema = database() and table_name = 'trips' and column_name = 'template_trip_id');
+prepare stmt from @ddl;
+execute stmt;
+deallocate prepare stmt;
+
+set @ddl = (select if(count(*) = 0, 'alter table trips add column row_fingerprint varchar(64)', 'do 0')
+            from information_schema.columns
+            where table_schema = database() and table_name = 'trips' and column_name = 'row_fingerprint');
+prepare stmt from @ddl;
+execute stmt;
+deallocate prepare stmt;
+
+-- Ids are now assigned by Hibernate from these tables; the auto_increment left on the id columns is unused.
+-- V2 moves both past the highest id in use.
+create table if not exists trips_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into trips_seq (next_val) select 1 from dual where not exists (select * from trips_seq);
+
+create table if not exists bookings_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into bookings_seq (next_val) select 1 from dual where not exists (select * from bookings_seq);
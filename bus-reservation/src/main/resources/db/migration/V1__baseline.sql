@@ -0,0 +1,116 @@
+-- Schema as generated by ddl-auto=update before Flyway took over. Existing databases are baselined
+-- below it (version 0), so this runs there too and only creates what is missing; V1.1 upgrades both alike.
+
+create table if not exists buses (
+    bus_id varchar(255) not null,
+    bus_type varchar(255) not null,
+    capacity integer not null,
+    home_depot varchar(255),
+    primary key (bus_id)
+) engine=InnoDB;
+
+create table if not exists seats (
+    seat_id bigint not null auto_increment,
+    bus_id varchar(255) not null,
+    seat_no varchar(255) not null,
+    primary key (seat_id),
+    constraint fk_seats_bus foreign key (bus_id) references buses (bus_id)
+) engine=InnoDB;
+
+create table if not exists stops (
+    id bigint not null auto_increment,
+    name varchar(255) not null,
+    sequence integer not null,
+    bus_id varchar(255) not null,
+    primary key (id),
+    constraint fk_stops_bus foreign key (bus_id) references buses (bus_id)
+) engine=InnoDB;
+
+create table if not exists cities (
+    id bigint not null auto_increment,
+    name varchar(255) not null,
+    state varchar(255),
+    primary key (id),
+    constraint uk_cities_name unique (name)
+) engine=InnoDB;
+
+create table if not exists days_calendar (
+    day_no integer not null,
+    label varchar(255) not null,
+    primary key (day_no)
+) engine=InnoDB;
+
+create table if not exists fare_rates (
+    category varchar(255) not null,
+    rate_per_km decimal(10,2) not null,
+    primary key (category)
+) engine=InnoDB;
+
+create table if not exists users (
+    id bigint not null auto_increment,
+    name varchar(255) not null,
+    email varchar(255) not null,
+    password varchar(255) not null,
+    role varchar(255) not null,
+    primary key (id),
+    constraint uk_users_email unique (email)
+) engine=InnoDB;
+
+create table if not exists trips (
+    id bigint not null auto_increment,
+    day_no integer not null,
+    bus_id varchar(255) not null,
+    from_city varchar(255) not null,
+    to_city varchar(255) not null,
+    departure_time time(6) not null,
+    arrival_time time(6) not null,
+    total_km integer not null,
+    price integer not null,
+    status varchar(255) not null,
+    import_batch_id varchar(255),
+    primary key (id),
+    constraint fk_trips_bus foreign key (bus_id) references buses (bus_id)
+) engine=InnoDB;
+
+create table if not exists trip_stops (
+    trip_stop_id bigint not null auto_increment,
+    trip_id bigint not null,
+    seq_no integer not null,
+    stop_name varchar(255) not null,
+    arrive_time time(6),
+    depart_time time(6),
+    cumulative_km integer not null,
+    primary key (trip_stop_id),
+    constraint fk_trip_stops_trip foreign key (trip_id) references trips (id)
+) engine=InnoDB;
+
+create table if not exists bookings (
+    booking_id bigint not null auto_increment,
+    pnr varchar(255) not null,
+    trip_id bigint not null,
+    booking_date date not null,
+    seat_no varchar(255) not null,
+    from_stop_seq integer not null,
+    to_stop_seq integer not null,
+    passenger_name varchar(255) not null,
+    passenger_phone varchar(255) not null,
+    fare_amount integer not null,
+    status varchar(255) not null,
+    booked_at datetime(6) not null,
+    user_id bigint,
+    primary key (booking_id),
+    constraint uk_bookings_pnr unique (pnr),
+    constraint fk_bookings_trip foreign key (trip_id) references trips (id),
+    constraint fk_bookings_user foreign key (user_id) references users (id)
+) engine=InnoDB;
+
+create table if not exists passengers (
+    id bigint not null auto_increment,
+    booking_id bigint not null,
+    name varchar(255) not null,
+    age integer not null,
+    gender varchar(255) not null,
+    seat_no integer not null,
+    primary key (id),
+    constraint fk_passengers_booking foreign key (booking_id) references bookings (booking_id)
+) engine=InnoDB;
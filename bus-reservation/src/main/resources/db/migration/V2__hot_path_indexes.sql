@@ -0,0 +1,15 @@
+-- Occupancy loads read (seat_no, from_stop_seq, to_stop_seq) of one trip/date's confirmed bookings;
+-- with the projected columns in the index the query never touches the table rows.
+create index idx_bookings_trip_date_status
+    on bookings (trip_id, booking_date, status, seat_no, from_stop_seq, to_stop_seq);
+
+-- Master-plan templates by day, dated trips by calendar date
+create index idx_trips_day_status on trips (day_no, status);
+create index idx_trips_travel_date_status on trips (travel_date, status);
+
+create index idx_trip_stops_trip_seq on trip_stops (trip_id, seq_no);
+
+-- Databases upgraded from ddl-auto=update hold rows inserted before the pooled sequences (V1.1) existed.
+-- Move each sequence one allocation block (50) above the highest id in use.
+update trips_seq set next_val = (select coalesce(max(id), 0) + 51 from trips);
+update bookings_seq set next_val = (select coalesce(max(booking_id), 0) + 51 from bookings);
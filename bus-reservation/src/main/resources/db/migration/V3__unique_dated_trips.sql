@@ -0,0 +1,29 @@
+-- One dated trip per template and date. Overlapping calendar syncs could insert a template's trip for a
+-- date twice; fold any such copies into the lowest id before the key makes it impossible.
+-- (Seats sold on both copies already overlap and need a manual look; this only merges the trips.)
+create temporary table dated_trip_keep engine=memory as
+select template_trip_id, travel_date, min(id) as keep_id
+from trips
+where template_trip_id is not null and travel_date is not null
+group by template_trip_id, travel_date
+having count(*) > 1;
+
+update bookings b
+    join trips t on t.id = b.trip_id
+    join dated_trip_keep k on k.template_trip_id = t.template_trip_id and k.travel_date = t.travel_date
+set b.trip_id = k.keep_id
+where t.id <> k.keep_id;
+
+delete s from trip_stops s
+    join trips t on t.id = s.trip_id
+    join dated_trip_keep k on k.template_trip_id = t.template_trip_id and k.travel_date = t.travel_date
+where t.id <> k.keep_id;
+
+delete t from trips t
+    join dated_trip_keep k on k.template_trip_id = t.template_trip_id and k.travel_date = t.travel_date
+where t.id <> k.keep_id;
+
+drop temporary table dated_trip_keep;
+
+-- Templates have no travel date; NULLs never collide, so only dated trips are constrained
+create unique index uk_trips_template_date on trips (template_trip_id, travel_date);
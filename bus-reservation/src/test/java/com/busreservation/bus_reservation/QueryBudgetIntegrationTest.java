@@ -0,0 +1,327 @@
+package com.busreservation.bus_reservation;
+
+import com.busreservation.bus_reservation.model.*;
+import com.busreservation.bus_reservation.repository.*;
+import com.busreservation.bus_reservation.security.JwtService;
+import com.busreservation.bus_reservation.service.RouteIndexService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * SQL statements per request for each controller, read from the hibernate.statements.per.request metric.
+ * The test profile runs query budgets in fail mode, so any endpoint over its {@code @QueryBudget} also fails here.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryBudgetIntegrationTest {
+
+    private static final LocalDate TRAVEL_DATE = LocalDate.now(ZoneId.of("Asia/Kolkata")).plusDays(3);
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private MeterRegistry meterRegistry;
+    @Autowired private BusRepository busRepository;
+    @Autowired private TripRepository tripRepository;
+    @Autowired private TripStopRepository tripStopRepository;
+    @Autowired private CityRepository cityRepository;
+    @Autowired private FareRateRepository fareRateRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private JwtService jwtService;
+    @Autowired private RouteIndexService routeIndexService;
+
+    private Long tripId;
+    private Long villupuramId;
+    private Long maduraiId;
+    private String adminToken;
+
+    @BeforeAll
+    void seed() {
+        fareRateRepository.save(new FareRate("AC Seater", new BigDecimal("1.50")));
+
+        Bus bus = busRepository.save(Bus.builder().busId("QB001").busType("AC Seater").capacity(40).build());
+        Trip trip = tripRepository.save(Trip.builder()
+                .dayNo(TRAVEL_DATE.getDayOfMonth())
+                .travelDate(TRAVEL_DATE)
+                .bus(bus)
+                .fromCity("Chennai")
+                .toCity("Madurai")
+                .departureTime(LocalTime.of(6, 0))
+                .arrivalTime(LocalTime.of(14, 0))
+                .totalKm(460)
+                .price(0)
+                .status("Running")
+                .build());
+        tripId = trip.getId();
+
+        String[] names = {"Chennai", "Villupuram", "Trichy", "Madurai"};
+        List<TripStop> stops = new ArrayList<>();
+        for (int seq = 0; seq < names.length; seq++) {
+            stops.add(TripStop.builder()
+                    .trip(trip)
+                    .seqNo(seq)
+                    .stopName(names[seq])
+                    .arriveTime(seq == 0 ? null : LocalTime.of(6 + seq * 2, 0))
+                    .departTime(seq == names.length - 1 ? null : LocalTime.of(6 + seq * 2, 10))
+                    .cumulativeKm(seq * 150)
+                    .build());
+        }
+        tripStopRepository.saveAll(stops);
+
+        villupuramId = cityRepository.save(City.builder().name("Villupuram").state("Tamil Nadu").build()).getId();
+        maduraiId = cityRepository.save(City.builder().name("Madurai").state("Tamil Nadu").build()).getId();
+
+        userRepository.save(User.builder()
+                .name("Admin")
+                .email("admin@querybudget.test")
+                .password(passwordEncoder.encode("secret"))
+                .role("ADMIN")
+                .build());
+        adminToken = jwtService.generateToken("admin@querybudget.test", Map.of("role", "ADMIN"));
+
+        routeIndexService.rebuild();
+    }
+
+    @Test
+    void tripSearchIsServedFromMemoryOnceWarm() throws Exception {
+        long cold = statements("GET", "/trips/search", () -> search().andExpect(status().isOk()));
+        long warm = statements("GET", "/trips/search", () -> search()
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trips.length()").value(1)));
+
+        assertThat(cold).isLessThanOrEqualTo(3);
+        assertThat(warm).isZero();
+    }
+
+    @Test
+    void seatAvailabilityLoadsTripBusAndSeatsOnce() throws Exception {
+        long count = statements("GET", "/trips/{tripId}/availability", () -> mockMvc.perform(
+                        get("/trips/{tripId}/availability", tripId)
+                                .param("date", TRAVEL_DATE.toString())
+                                .param("fromSeq", "0")
+                                .param("toSeq", "3"))
+                .andExpect(status().isOk()));
+
+        assertThat(count).isEqualTo(1);
+    }
+
+    @Test
+    void groupBookingCostsTheSameAsASingleSeat() throws Exception {
+        long single = statements("POST", "/bookings", () -> mockMvc.perform(post("/bookings")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingJson("\"seatNo\":\"1\",\"passenger\":" + passengerJson())))
+                .andExpect(status().isOk()));
+
+        StringBuilder seats = new StringBuilder();
+        for (int seat = 10; seat < 16; seat++) {
+            if (seats.length() > 0) seats.append(',');
+            seats.append("{\"seatNo\":\"").append(seat).append("\",\"passenger\":").append(passengerJson()).append('}');
+        }
+        long group = statements("POST", "/bookings/group", () -> mockMvc.perform(post("/bookings/group")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingJson("\"seats\":[" + seats + "]")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookings.length()").value(6)));
+
+        assertThat(single).isLessThanOrEqualTo(10);
+        // Six seats must not mean six times the statements
+        assertThat(group).isLessThanOrEqualTo(single + 1);
+    }
+
+    @Test
+    void bookingLookupByPnrStaysWithinBudget() throws Exception {
+        String body = mockMvc.perform(post("/bookings")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingJson("\"seatNo\":\"2\",\"passenger\":" + passengerJson())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String pnr = body.replaceAll(".*\"pnr\":\"([^\"]+)\".*", "$1");
+
+        long count = statements("GET", "/bookings/{pnr}", () -> mockMvc.perform(get("/bookings/{pnr}", pnr))
+                .andExpect(status().isOk()));
+
+        assertThat(count).isEqualTo(1);
+    }
+
+    @Test
+    void cancellationPutsTheSeatBackOnSale() throws Exception {
+        String seat = bookingJson("\"seatNo\":\"3\",\"passenger\":" + passengerJson());
+        String body = mockMvc.perform(post("/bookings")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(seat))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String pnr = body.replaceAll(".*\"pnr\":\"([^\"]+)\".*", "$1");
+
+        long count = statements("POST", "/bookings/{pnr}/cancel", () -> mockMvc.perform(
+                        post("/bookings/{pnr}/cancel", pnr).header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CANCELLED")));
+        assertThat(count).isLessThanOrEqualTo(3);
+
+        mockMvc.perform(post("/bookings/{pnr}/cancel", pnr).header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/bookings").contentType(MediaType.APPLICATION_JSON).content(seat))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void loginLooksTheUserUpAtMostTwice() throws Exception {
+        long count = statements("POST", "/auth/login", () -> mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"admin@querybudget.test\",\"password\":\"secret\"}"))
+                .andExpect(status().isOk()));
+
+        assertThat(count).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void fareRatesAreListedFromTheCache() throws Exception {
+        statements("GET", "/admin/fare-rates", () -> fareRates().andExpect(status().isOk()));
+        long warm = statements("GET", "/admin/fare-rates", () -> fareRates().andExpect(status().isOk()));
+
+        // Rates come from memory and the admin role from the token itself
+        assertThat(warm).isZero();
+    }
+
+    @Test
+    void busSearchLoadsCitiesAndSeatsOncePerRequest() throws Exception {
+        long cold = statements("GET", "/api/buses/search", () -> busSearch().andExpect(status().isOk()));
+        long warm = statements("GET", "/api/buses/search", () -> busSearch()
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.buses.length()").value(1)));
+
+        assertThat(cold).isLessThanOrEqualTo(3);
+        // Only the city lookup; routes and seats are already in memory
+        assertThat(warm).isEqualTo(1);
+    }
+
+    @Test
+    void busDetailsAndSeatsStayWithinBudget() throws Exception {
+        long details = statements("GET", "/api/buses/{busId}", () -> mockMvc.perform(get("/api/buses/{busId}", tripId)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stops.length()").value(4)));
+        long seats = statements("GET", "/api/buses/{busId}/seats", () -> mockMvc.perform(
+                        get("/api/buses/{busId}/seats", tripId)
+                                .header("Authorization", "Bearer " + adminToken)
+                                .param("fromStopId", "1")
+                                .param("toStopId", "3")
+                                .param("date", TRAVEL_DATE.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.seats.length()").value(40)));
+
+        assertThat(details).isLessThanOrEqualTo(2);
+        assertThat(seats).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void citySearchIsOneQuery() throws Exception {
+        long count = statements("GET", "/api/cities", () -> mockMvc.perform(get("/api/cities")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("q", "Mad"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1)));
+
+        assertThat(count).isEqualTo(1);
+    }
+
+    @Test
+    void importEndpointsLeaveTheDatabaseToTheJobPool() throws Exception {
+        // Not a workbook: the job fails on its own thread, the requests themselves run no SQL
+        MockMultipartFile upload = new MockMultipartFile("file", "trips.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", new byte[]{1, 2, 3});
+        String[] jobId = new String[1];
+
+        long submit = statements("POST", "/admin/import/jobs", () -> jobId[0] = mockMvc.perform(
+                        multipart("/admin/import/jobs").file(upload).header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString()
+                .replaceAll(".*\"jobId\":\"([^\"]+)\".*", "$1"));
+        long poll = statements("GET", "/admin/import/jobs/{jobId}", () -> mockMvc.perform(
+                        get("/admin/import/jobs/{jobId}", jobId[0]).header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk()));
+        long sync = statements("POST", "/admin/import", () -> mockMvc.perform(
+                        multipart("/admin/import").file(upload).header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false)));
+
+        assertThat(submit).isZero();
+        assertThat(poll).isZero();
+        assertThat(sync).isZero();
+    }
+
+    private ResultActions busSearch() throws Exception {
+        return mockMvc.perform(get("/api/buses/search")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("fromCityId", villupuramId.toString())
+                .param("toCityId", maduraiId.toString())
+                .param("date", TRAVEL_DATE.toString()));
+    }
+
+    private ResultActions search() throws Exception {
+        return mockMvc.perform(get("/trips/search")
+                .param("date", TRAVEL_DATE.toString())
+                .param("from", "Villupuram")
+                .param("to", "Madurai"));
+    }
+
+    private ResultActions fareRates() throws Exception {
+        return mockMvc.perform(get("/admin/fare-rates").header("Authorization", "Bearer " + adminToken));
+    }
+
+    private String bookingJson(String seatFields) {
+        return "{\"tripId\":" + tripId + ",\"date\":\"" + TRAVEL_DATE + "\",\"fromStopSeq\":0,\"toStopSeq\":3," + seatFields + "}";
+    }
+
+    private static String passengerJson() {
+        return "{\"name\":\"Test Passenger\",\"phone\":\"9999999999\"}";
+    }
+
+    // Statements recorded by StatementCountFilter for one request to the given route
+    private long statements(String method, String uri, ThrowingRunnable request) throws Exception {
+        double before = total(method, uri);
+        request.run();
+        return Math.round(total(method, uri) - before);
+    }
+
+    private double total(String method, String uri) {
+        DistributionSummary summary = meterRegistry.find("hibernate.statements.per.request")
+                .tag("method", method)
+                .tag("uri", uri)
+                .summary();
+        return summary != null ? summary.totalAmount() : 0;
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,72 @@
+package com.busreservation.bus_reservation.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class RateLimitFilterTest {
+
+    private static final int SEARCH_BURST = 5;
+
+    private LoadMonitor loadMonitor;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        loadMonitor = mock(LoadMonitor.class);
+        // A refill rate slow enough that no token comes back during the test
+        filter = new RateLimitFilter(loadMonitor, new SimpleMeterRegistry(), true, 0.01, SEARCH_BURST, 0.01, 2);
+    }
+
+    @Test
+    void searchBeyondTheBurstIsRejectedWith429() throws Exception {
+        for (int i = 0; i < SEARCH_BURST; i++) {
+            assertThat(perform("GET", "/trips/search", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+
+        MockHttpServletResponse rejected = perform("GET", "/trips/search", "10.0.0.1");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isNotNull();
+
+        // Other clients have their own buckets
+        assertThat(perform("GET", "/trips/search", "10.0.0.2").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void bookingsHaveTheirOwnLane() throws Exception {
+        for (int i = 0; i <= SEARCH_BURST; i++) {
+            perform("GET", "/trips/search", "10.0.0.1");
+        }
+
+        assertThat(perform("POST", "/bookings", "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void overloadShedsSearchButNotBookings() throws Exception {
+        when(loadMonitor.shouldShedSearch()).thenReturn(true);
+
+        assertThat(perform("GET", "/trips/search", "10.0.0.1").getStatus()).isEqualTo(503);
+        assertThat(perform("POST", "/bookings", "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void otherEndpointsAreNotLimited() throws Exception {
+        for (int i = 0; i < SEARCH_BURST * 3; i++) {
+            assertThat(perform("GET", "/bookings/my", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+    }
+
+    private MockHttpServletResponse perform(String method, String uri, String remoteAddr) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(remoteAddr);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
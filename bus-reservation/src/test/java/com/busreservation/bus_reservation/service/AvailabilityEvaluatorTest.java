@@ -0,0 +1,107 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.repository.BookedSeatSegment;
+import com.busreservation.bus_reservation.repository.BookingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AvailabilityEvaluatorTest {
+
+    private static final LocalDate DATE = LocalDate.now().plusDays(4);
+    private static final int CAPACITY = 40;
+
+    private BookingRepository bookingRepository;
+    private SeatOccupancyService seatOccupancyService;
+    private SimpleMeterRegistry meterRegistry;
+    private AvailabilityEvaluator evaluator;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = mock(BookingRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        seatOccupancyService = new SeatOccupancyService(bookingRepository, new SeatLockStripes(64),
+                meterRegistry, mock(ApplicationEventPublisher.class));
+        evaluator = new AvailabilityEvaluator(seatOccupancyService, meterRegistry, 2, 100, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        evaluator.shutdown();
+    }
+
+    @Test
+    void coldTripsAreLoadedWithOneQuery() {
+        when(bookingRepository.findSeatSegmentsByTripIdIn(anyCollection(), eq(DATE), eq("CONFIRMED")))
+                .thenReturn(List.of(new BookedSeatSegment(2L, "1", 0, 2)));
+
+        Integer[] seats = evaluator.availableSeats(List.of(trip(1L), trip(2L), trip(3L)));
+
+        assertThat(seats).containsExactly(CAPACITY, CAPACITY - 1, CAPACITY);
+        verify(bookingRepository).findSeatSegmentsByTripIdIn(anyCollection(), eq(DATE), eq("CONFIRMED"));
+        verify(bookingRepository, never()).findSeatSegments(anyLong(), any(), anyString());
+    }
+
+    @Test
+    void loadMissingTheDeadlineShowsUnknownAndFinishesInTheBackground() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch loaded = new CountDownLatch(1);
+        when(bookingRepository.findSeatSegmentsByTripIdIn(anyCollection(), eq(DATE), eq("CONFIRMED")))
+                .thenAnswer(inv -> {
+                    release.await();
+                    loaded.countDown();
+                    return List.of();
+                });
+        // Trip 1 is warm and counts as usual
+        seatOccupancyService.get(1L, DATE);
+        clearInvocations(bookingRepository);
+
+        long started = System.nanoTime();
+        Integer[] seats = evaluator.availableSeats(List.of(trip(1L), trip(2L)));
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(2_000);
+        assertThat(seats).containsExactly(CAPACITY, null);
+        assertThat(meterRegistry.counter("search.availability.timeouts").count()).isEqualTo(1);
+        verify(bookingRepository, never()).findSeatSegments(anyLong(), any(), anyString());
+
+        release.countDown();
+        assertThat(loaded.await(5, TimeUnit.SECONDS)).isTrue();
+        // The next search finds the load done
+        for (int attempt = 0; attempt < 50 && !seatOccupancyService.isLoaded(2L, DATE); attempt++) {
+            Thread.sleep(10);
+        }
+        assertThat(evaluator.availableSeats(List.of(trip(2L)))).containsExactly(CAPACITY);
+    }
+
+    @Test
+    void failedLoadShowsUnknownInsteadOfFailingTheSearch() {
+        when(bookingRepository.findSeatSegmentsByTripIdIn(anyCollection(), eq(DATE), eq("CONFIRMED")))
+                .thenThrow(new IllegalStateException("connection refused"));
+
+        Integer[] seats = evaluator.availableSeats(List.of(trip(1L), trip(2L)));
+
+        assertThat(seats).containsExactly(null, null);
+        assertThat(meterRegistry.counter("search.availability.failures").count()).isEqualTo(2);
+    }
+
+    private static SearchResultCache.CachedTrip trip(long tripId) {
+        RouteIndex.TripEntry entry = new RouteIndex.TripEntry(tripId, DATE, "B" + tripId, "AC Seater", CAPACITY,
+                "Chennai", "Madurai", LocalTime.of(6, 0), LocalTime.of(14, 0));
+        RouteIndex.RouteMatch match = new RouteIndex.RouteMatch(entry,
+                new RouteIndex.StopVisit(tripId, 0, 0, "A", null, LocalTime.of(6, 0)),
+                new RouteIndex.StopVisit(tripId, 2, 300, "B", LocalTime.of(11, 0), null));
+        return new SearchResultCache.CachedTrip(match, DATE, 300, 450);
+    }
+}
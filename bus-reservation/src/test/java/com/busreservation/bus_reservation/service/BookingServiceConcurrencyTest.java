@@ -0,0 +1,271 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.dto.BookingDto;
+import com.busreservation.bus_reservation.exception.BadRequestException;
+import com.busreservation.bus_reservation.model.*;
+import com.busreservation.bus_reservation.repository.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BookingServiceConcurrencyTest {
+
+    private static final int STOPS = 6;
+    private static final int SEATS = 10;
+    private static final LocalDate TRAVEL_DATE = LocalDate.now().plusDays(7);
+
+    private BookingRepository bookingRepository;
+    private TripRepository tripRepository;
+    private TripStopRepository tripStopRepository;
+    private BookingService bookingService;
+    private SimpleMeterRegistry meterRegistry;
+
+    private final Queue<Booking> savedBookings = new ConcurrentLinkedQueue<>();
+    private final AtomicLong bookingIds = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = mock(BookingRepository.class);
+        tripRepository = mock(TripRepository.class);
+        tripStopRepository = mock(TripStopRepository.class);
+        FareRateRepository fareRateRepository = mock(FareRateRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+
+        when(tripRepository.findById(anyLong())).thenAnswer(inv -> Optional.of(trip(inv.getArgument(0))));
+        when(tripRepository.findByIdForUpdate(anyLong())).thenAnswer(inv -> Optional.of(trip(inv.getArgument(0))));
+        when(tripStopRepository.findByTripIdOrderBySeqNoAsc(anyLong())).thenAnswer(inv -> stops(inv.getArgument(0)));
+        when(fareRateRepository.findAll()).thenReturn(List.of());
+        when(bookingRepository.findSeatSegments(anyLong(), any(), anyString())).thenReturn(List.of());
+        when(bookingRepository.saveAll(anyIterable())).thenAnswer(inv -> {
+            List<Booking> saved = new ArrayList<>();
+            for (Booking booking : inv.<Iterable<Booking>>getArgument(0)) {
+                booking.setBookingId(bookingIds.incrementAndGet());
+                saved.add(booking);
+            }
+            savedBookings.addAll(saved);
+            return saved;
+        });
+
+        meterRegistry = new SimpleMeterRegistry();
+        SeatOccupancyService seatOccupancyService = new SeatOccupancyService(bookingRepository, new SeatLockStripes(64),
+                meterRegistry, mock(ApplicationEventPublisher.class));
+        FarePricingService farePricingService = new FarePricingService(fareRateRepository,
+                mock(ApplicationEventPublisher.class), 1000);
+        bookingService = new BookingService(bookingRepository, tripRepository, tripStopRepository,
+                farePricingService, userRepository, seatOccupancyService, new PnrGenerator(0),
+                new SeatHoldService(seatOccupancyService, meterRegistry, 10, 6, 2, 12), 6);
+    }
+
+    @Test
+    void conflictingBookingsNeverDoubleSellASeatSegment() throws Exception {
+        int requests = 5000;
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(requests, i -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int from = random.nextInt(STOPS - 1);
+            int to = from + 1 + random.nextInt(STOPS - 1 - from);
+            try {
+                bookingService.createBooking(null, request(1L, String.valueOf(1 + random.nextInt(SEATS)), from, to));
+            } catch (BadRequestException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertThat(savedBookings.size() + rejected.get()).isEqualTo(requests);
+        assertNoOverlappingBookings(savedBookings);
+    }
+
+    @Test
+    void everyoneRacingForTheSameSeatLeavesExactlyOneWinner() throws Exception {
+        runConcurrently(2000, i -> {
+            try {
+                bookingService.createBooking(null, request(1L, "7", 0, STOPS - 1));
+            } catch (BadRequestException ignored) {
+                // expected for every loser
+            }
+        });
+
+        assertThat(savedBookings).hasSize(1);
+        assertThat(meterRegistry.counter("booking.seat.conflicts").count()).isEqualTo(1999);
+    }
+
+    @Test
+    void bookingsOnDifferentTripsDoNotBlockEachOther() throws Exception {
+        int trips = 50;
+
+        // Every trip gets each of its seats booked once for the full route
+        runConcurrently(trips * SEATS, i -> bookingService.createBooking(null,
+                request((long) (i % trips) + 1, String.valueOf(i / trips + 1), 0, STOPS - 1)));
+
+        assertThat(savedBookings).hasSize(trips * SEATS);
+        assertNoOverlappingBookings(savedBookings);
+    }
+
+    @Test
+    void groupBookingWithOneTakenSeatClaimsAndInsertsNothing() {
+        bookingService.createBooking(null, request(1L, "3", 0, STOPS - 1));
+
+        assertThatThrownBy(() -> bookingService.createGroupBooking(null, groupRequest(1L, "1", "2", "3", "4")))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Seat 3 is not available");
+        assertThat(savedBookings).hasSize(1);
+
+        // The seats claimed before the conflict were released again
+        bookingService.createGroupBooking(null, groupRequest(1L, "1", "2", "4"));
+        assertThat(savedBookings).hasSize(4);
+        assertNoOverlappingBookings(savedBookings);
+    }
+
+    @Test
+    void groupBookingListingASeatTwiceIsRejectedUpFront() {
+        assertThatThrownBy(() -> bookingService.createGroupBooking(null, groupRequest(1L, "5", "6", "5")))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Seat 5 is listed more than once");
+
+        assertThat(savedBookings).isEmpty();
+        assertThat(meterRegistry.counter("booking.seat.conflicts").count()).isZero();
+        bookingService.createGroupBooking(null, groupRequest(1L, "5", "6"));
+        assertThat(savedBookings).hasSize(2);
+    }
+
+    @Test
+    void groupBookingAboveTheSeatLimitIsRejectedUpFront() {
+        assertThatThrownBy(() -> bookingService.createGroupBooking(null,
+                groupRequest(1L, "1", "2", "3", "4", "5", "6", "7")))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("At most 6 seats can be booked at once");
+
+        assertThat(savedBookings).isEmpty();
+        verify(tripRepository, never()).findByIdForUpdate(anyLong());
+        bookingService.createGroupBooking(null, groupRequest(1L, "1", "2", "3", "4", "5", "6"));
+        assertThat(savedBookings).hasSize(6);
+    }
+
+    @Test
+    void seatSoldOnAnotherNodeIsRejectedByTheCommittedRows() {
+        when(bookingRepository.findConflictingSeatNos(eq(1L), eq(TRAVEL_DATE), anyCollection(), anyInt(), anyInt()))
+                .thenReturn(List.of("8"));
+
+        assertThatThrownBy(() -> bookingService.createBooking(null, request(1L, "8", 0, 2)))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Seat 8 is not available");
+        assertThat(savedBookings).isEmpty();
+        verify(tripRepository).findByIdForUpdate(1L);
+    }
+
+    private void runConcurrently(int tasks, IntConsumerWithException task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < tasks; i++) {
+            int n = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.accept(n);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private static void assertNoOverlappingBookings(Collection<Booking> bookings) {
+        Map<String, List<Booking>> bySeat = new HashMap<>();
+        for (Booking booking : bookings) {
+            bySeat.computeIfAbsent(booking.getTrip().getId() + "/" + booking.getSeatNo(), k -> new ArrayList<>())
+                    .add(booking);
+        }
+        bySeat.forEach((seat, seatBookings) -> {
+            for (int i = 0; i < seatBookings.size(); i++) {
+                for (int j = i + 1; j < seatBookings.size(); j++) {
+                    Booking a = seatBookings.get(i);
+                    Booking b = seatBookings.get(j);
+                    assertThat(a.getFromStopSeq() < b.getToStopSeq() && b.getFromStopSeq() < a.getToStopSeq())
+                            .as("seat %s double-sold: [%d,%d) and [%d,%d)", seat,
+                                    a.getFromStopSeq(), a.getToStopSeq(), b.getFromStopSeq(), b.getToStopSeq())
+                            .isFalse();
+                }
+            }
+        });
+    }
+
+    private static BookingDto.BookingRequest request(Long tripId, String seatNo, int from, int to) {
+        return BookingDto.BookingRequest.builder()
+                .tripId(tripId)
+                .date(TRAVEL_DATE)
+                .fromStopSeq(from)
+                .toStopSeq(to)
+                .seatNo(seatNo)
+                .passenger(BookingDto.PassengerInfo.builder().name("Test").phone("9999999999").build())
+                .build();
+    }
+
+    private static BookingDto.GroupBookingRequest groupRequest(Long tripId, String... seatNos) {
+        List<BookingDto.SeatSelection> seats = new ArrayList<>();
+        for (String seatNo : seatNos) {
+            seats.add(BookingDto.SeatSelection.builder()
+                    .seatNo(seatNo)
+                    .passenger(BookingDto.PassengerInfo.builder().name("Test").phone("9999999999").build())
+                    .build());
+        }
+        return BookingDto.GroupBookingRequest.builder()
+                .tripId(tripId)
+                .date(TRAVEL_DATE)
+                .fromStopSeq(0)
+                .toStopSeq(STOPS - 1)
+                .seats(seats)
+                .build();
+    }
+
+    private static Trip trip(Long tripId) {
+        Bus bus = Bus.builder().busId("B" + tripId).busType("AC Seater").capacity(SEATS).build();
+        return Trip.builder()
+                .id(tripId)
+                .dayNo(TRAVEL_DATE.getDayOfMonth())
+                .travelDate(TRAVEL_DATE)
+                .bus(bus)
+                .fromCity("Chennai")
+                .toCity("Madurai")
+                .departureTime(LocalTime.of(6, 0))
+                .arrivalTime(LocalTime.of(14, 0))
+                .totalKm(460)
+                .price(0)
+                .status("Running")
+                .build();
+    }
+
+    private static List<TripStop> stops(Long tripId) {
+        List<TripStop> stops = new ArrayList<>();
+        for (int seq = 0; seq < STOPS; seq++) {
+            stops.add(TripStop.builder()
+                    .seqNo(seq)
+                    .stopName("Stop " + seq)
+                    .cumulativeKm(seq * 80)
+                    .departTime(LocalTime.of(6 + seq, 0))
+                    .build());
+        }
+        return stops;
+    }
+
+    @FunctionalInterface
+    private interface IntConsumerWithException {
+        void accept(int value) throws Exception;
+    }
+}
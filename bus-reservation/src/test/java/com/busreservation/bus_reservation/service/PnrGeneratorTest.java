@@ -0,0 +1,86 @@
+package com.busreservation.bus_reservation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PnrGeneratorTest {
+
+    private static final int THREADS = 32;
+    private static final int PER_THREAD = 50_000;
+
+    @Test
+    void pnrsAreUniqueAcrossThreads() throws Exception {
+        PnrGenerator generator = new PnrGenerator(7);
+        Set<String> pnrs = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < PER_THREAD; i++) {
+                    pnrs.add(generator.next());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(pnrs).hasSize(THREADS * PER_THREAD);
+        assertThat(pnrs).allMatch(pnr -> pnr.matches("MGT[0-9A-HJKMNP-TV-Z]{13}"));
+    }
+
+    @Test
+    void exhaustedSequenceCarriesIntoTheNextMillisecond() {
+        // Frozen clock: far more ids than one millisecond's 4096 sequence values
+        PnrGenerator generator = new PnrGenerator(1, () -> PnrGenerator.EPOCH_MILLIS + 1_000);
+
+        long previous = -1;
+        for (int i = 0; i < 20_000; i++) {
+            long id = generator.nextId();
+            assertThat(id).isGreaterThan(previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void clockSteppingBackNeverRepeatsAnId() {
+        long[] now = {PnrGenerator.EPOCH_MILLIS + 5_000};
+        PnrGenerator generator = new PnrGenerator(1, () -> now[0]);
+
+        long before = generator.nextId();
+        now[0] -= 1_000;
+        assertThat(generator.nextId()).isGreaterThan(before);
+    }
+
+    @Test
+    void nodesNeverCollideOnTheSameMillisecond() {
+        PnrGenerator first = new PnrGenerator(1, () -> PnrGenerator.EPOCH_MILLIS + 1_000);
+        PnrGenerator second = new PnrGenerator(2, () -> PnrGenerator.EPOCH_MILLIS + 1_000);
+
+        Set<String> pnrs = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            pnrs.add(first.next());
+            pnrs.add(second.next());
+        }
+        assertThat(pnrs).hasSize(2_000);
+    }
+
+    @Test
+    void rejectsNodeIdsOutsideTheLayout() {
+        assertThatThrownBy(() -> new PnrGenerator(PnrGenerator.MAX_NODE_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new PnrGenerator(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,139 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.model.Bus;
+import com.busreservation.bus_reservation.model.Trip;
+import com.busreservation.bus_reservation.model.TripStop;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteIndexTest {
+
+    private static final LocalDate DAY1 = LocalDate.now().plusDays(1);
+    private static final LocalDate DAY2 = LocalDate.now().plusDays(2);
+
+    @Test
+    void connectionsOfAPairAreOrderedByTripId() {
+        RouteIndex index = RouteIndex.build(concat(
+                stops(trip(3L, DAY1), 6, "A", "B", "C"),
+                stops(trip(7L, DAY1), 8, "A", "C"),
+                stops(trip(12L, DAY1), 7, "X", "A", "B", "C")));
+
+        assertThat(index.findRoutes(DAY1, "A", "C")).extracting(m -> m.trip().tripId())
+                .containsExactly(3L, 7L, 12L);
+        assertThat(index.findRoutes(DAY1, " a ", "b")).extracting(m -> m.trip().tripId())
+                .containsExactly(3L, 12L);
+        assertThat(index.findRoutes(DAY1, "C", "A")).isEmpty();
+
+        RouteIndex.RouteMatch match = index.findRoutes(DAY1, "A", "C").get(2);
+        assertThat(match.from().seqNo()).isEqualTo(1);
+        assertThat(match.to().seqNo()).isEqualTo(3);
+        assertThat(match.to().cumulativeKm() - match.from().cumulativeKm()).isEqualTo(200);
+        assertThat(match.from().departTime()).isEqualTo(LocalTime.of(8, 0));
+        assertThat(match.to().arriveTime()).isEqualTo(LocalTime.of(9, 55));
+    }
+
+    @Test
+    void repeatedStopKeepsOnlyItsFirstVisit() {
+        RouteIndex index = RouteIndex.build(stops(trip(1L, DAY1), 6, "A", "B", "A", "C"));
+
+        assertThat(index.findRoutes(DAY1, "A", "C")).singleElement()
+                .satisfies(m -> assertThat(m.from().seqNo()).isZero());
+        assertThat(index.findRoutes(DAY1, "B", "A")).isEmpty();
+        assertThat(index.connectionCount()).isEqualTo(3);
+    }
+
+    @Test
+    void rebuildingOneDateCarriesTheOthersOverUnchanged() {
+        RouteIndex index = RouteIndex.build(concat(
+                stops(trip(1L, DAY1), 6, "A", "B"),
+                stops(trip(2L, DAY2), 6, "A", "B")));
+        Object day2 = index.dayVersion(DAY2);
+
+        RouteIndex rebuilt = index.withDates(Set.of(DAY1), stops(trip(3L, DAY1), 9, "A", "B"));
+
+        assertThat(rebuilt.dayVersion(DAY2)).isSameAs(day2);
+        assertThat(rebuilt.dayVersion(DAY1)).isNotNull().isNotSameAs(index.dayVersion(DAY1));
+        assertThat(rebuilt.findRoutes(DAY1, "A", "B")).extracting(m -> m.trip().tripId()).containsExactly(3L);
+        assertThat(rebuilt.findRoutes(DAY2, "A", "B")).extracting(m -> m.trip().tripId()).containsExactly(2L);
+        assertThat(rebuilt.getTrip(1L)).isNull();
+        assertThat(rebuilt.tripCount()).isEqualTo(2);
+
+        // The original snapshot is untouched
+        assertThat(index.findRoutes(DAY1, "A", "B")).extracting(m -> m.trip().tripId()).containsExactly(1L);
+    }
+
+    @Test
+    void dateThatLosesAllItsTripsIsDropped() {
+        RouteIndex index = RouteIndex.build(concat(
+                stops(trip(1L, DAY1), 6, "A", "B", "C"),
+                stops(trip(2L, DAY2), 6, "A", "B")));
+
+        RouteIndex rebuilt = index.withDates(Set.of(DAY1), List.of());
+
+        assertThat(rebuilt.dayVersion(DAY1)).isNull();
+        assertThat(rebuilt.findRoutes(DAY1, "A", "B")).isEmpty();
+        assertThat(rebuilt.getTrip(1L)).isNull();
+        assertThat(rebuilt.tripCount()).isEqualTo(1);
+        assertThat(rebuilt.connectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void datesWithTheSameTimetableShareOneTable() {
+        RouteIndex index = RouteIndex.build(concat(
+                stops(trip(1L, DAY1), 6, "A", "B", "C"),
+                stops(trip(2L, DAY2), 6, "A", "B", "C")));
+
+        assertThat(index.distinctTableCount()).isEqualTo(1);
+        assertThat(index.connectionCount()).isEqualTo(6);
+        assertThat(index.dayVersion(DAY1)).isNotSameAs(index.dayVersion(DAY2));
+        assertThat(index.findRoutes(DAY2, "A", "C")).extracting(m -> m.trip().tripId()).containsExactly(2L);
+
+        // A different departure time gives the date its own table again
+        RouteIndex rebuilt = index.withDates(Set.of(DAY2), stops(trip(3L, DAY2), 7, "A", "B", "C"));
+        assertThat(rebuilt.distinctTableCount()).isEqualTo(2);
+        assertThat(rebuilt.findRoutes(DAY1, "A", "C")).extracting(m -> m.trip().tripId()).containsExactly(1L);
+    }
+
+    @SafeVarargs
+    private static List<TripStop> concat(List<TripStop>... trips) {
+        List<TripStop> all = new ArrayList<>();
+        for (List<TripStop> trip : trips) {
+            all.addAll(trip);
+        }
+        return all;
+    }
+
+    // Stops 100 km and an hour apart, arriving 5 minutes before departing again
+    private static List<TripStop> stops(Trip trip, int departsAt, String... names) {
+        List<TripStop> stops = new ArrayList<>();
+        LocalTime time = LocalTime.of(departsAt, 0);
+        for (int seq = 0; seq < names.length; seq++) {
+            stops.add(TripStop.builder()
+                    .trip(trip)
+                    .seqNo(seq)
+                    .stopName(names[seq])
+                    .cumulativeKm(seq * 100)
+                    .arriveTime(seq == 0 ? null : time.minusMinutes(5))
+                    .departTime(seq == names.length - 1 ? null : time)
+                    .build());
+            time = time.plusMinutes(60);
+        }
+        return stops;
+    }
+
+    private static Trip trip(Long tripId, LocalDate date) {
+        return Trip.builder()
+                .id(tripId)
+                .dayNo(date.getDayOfMonth())
+                .travelDate(date)
+                .bus(Bus.builder().busId("B" + tripId).busType("AC Seater").capacity(40).build())
+                .fromCity("Chennai")
+                .toCity("Madurai")
+                .build();
+    }
+}
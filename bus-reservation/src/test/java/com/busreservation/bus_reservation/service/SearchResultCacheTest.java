@@ -0,0 +1,98 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.event.SeatInventoryChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SearchResultCacheTest {
+
+    private static final LocalDate DATE = LocalDate.now().plusDays(2);
+
+    @Test
+    void concurrentReadersNeverSeeAnUncountedTrip() throws Exception {
+        SeatOccupancyService occupancy = mock(SeatOccupancyService.class);
+        when(occupancy.availableSeats(anyLong(), any(), anyInt(), anyInt(), anyInt())).thenAnswer(inv -> {
+            Thread.sleep(5);
+            return 7;
+        });
+
+        for (int round = 0; round < 20; round++) {
+            SearchResultCache.CachedTrip trip = trip(1L);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> reads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                reads.add(executor.submit(() -> {
+                    start.await();
+                    return trip.availableSeats(occupancy);
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> read : reads) {
+                assertThat(read.get(10, TimeUnit.SECONDS)).isEqualTo(7);
+            }
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void seatChangeRecountsOnlyTheTripItTouched() {
+        SeatOccupancyService occupancy = mock(SeatOccupancyService.class);
+        when(occupancy.availableSeats(anyLong(), any(), anyInt(), anyInt(), anyInt())).thenReturn(10, 9);
+        SearchResultCache cache = new SearchResultCache(new SimpleMeterRegistry(), 100);
+
+        SearchResultCache.CachedTrip first = trip(1L);
+        SearchResultCache.CachedTrip second = trip(2L);
+        cache.get(key("A"), "v1", () -> List.of(first, second));
+        first.availableSeats(occupancy);
+        second.availableSeats(occupancy);
+
+        cache.onSeatInventoryChanged(new SeatInventoryChangedEvent(1L, DATE));
+
+        assertThat(first.needsRecount()).isTrue();
+        assertThat(second.needsRecount()).isFalse();
+        assertThat(first.availableSeats(occupancy)).isEqualTo(9);
+    }
+
+    @Test
+    void replacedAndEvictedEntriesLeaveThePatchingIndex() {
+        SearchResultCache cache = new SearchResultCache(new SimpleMeterRegistry(), 5);
+
+        // Every day version change rebuilds the entry; only the latest trips stay registered
+        for (int version = 0; version < 50; version++) {
+            cache.get(key("A"), "v" + version, () -> List.of(trip(1L), trip(2L)));
+        }
+        assertThat(cache.patchableTrips()).isEqualTo(2);
+
+        // Far more keys than fit; evicted ones take their trips with them
+        for (int k = 0; k < 200; k++) {
+            cache.get(key("K" + k), "v1", () -> List.of(trip(3L)));
+        }
+        assertThat(cache.patchableTrips()).isLessThanOrEqualTo(5 * 2);
+
+        cache.clear();
+        assertThat(cache.patchableTrips()).isZero();
+    }
+
+    private static SearchResultCache.SearchKey key(String from) {
+        return SearchResultCache.SearchKey.of(DATE, from, "B", null);
+    }
+
+    private static SearchResultCache.CachedTrip trip(long tripId) {
+        RouteIndex.TripEntry entry = new RouteIndex.TripEntry(tripId, DATE, "B" + tripId, "AC Seater", 40,
+                "Chennai", "Madurai", LocalTime.of(6, 0), LocalTime.of(14, 0));
+        RouteIndex.RouteMatch match = new RouteIndex.RouteMatch(entry,
+                new RouteIndex.StopVisit(tripId, 0, 0, "A", null, LocalTime.of(6, 0)),
+                new RouteIndex.StopVisit(tripId, 2, 300, "B", LocalTime.of(11, 0), null));
+        return new SearchResultCache.CachedTrip(match, DATE, 300, 450);
+    }
+}
@@ -0,0 +1,184 @@
+package com.busreservation.bus_reservation.service;
+
+import com.busreservation.bus_reservation.exception.BadRequestException;
+import com.busreservation.bus_reservation.exception.NotFoundException;
+import com.busreservation.bus_reservation.exception.TooManyRequestsException;
+import com.busreservation.bus_reservation.repository.BookingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SeatHoldServiceTest {
+
+    private static final long TRIP = 1L;
+    private static final LocalDate DATE = LocalDate.now().plusDays(3);
+    private static final int CAPACITY = 10;
+
+    private final long[] now = {1_000_000L};
+    private SeatOccupancyService seatOccupancyService;
+    private SeatHoldService seatHoldService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        BookingRepository bookingRepository = mock(BookingRepository.class);
+        when(bookingRepository.findSeatSegments(anyLong(), any(), anyString())).thenReturn(List.of());
+
+        meterRegistry = new SimpleMeterRegistry();
+        seatOccupancyService = new SeatOccupancyService(bookingRepository, new SeatLockStripes(64),
+                meterRegistry, mock(ApplicationEventPublisher.class));
+        seatHoldService = new SeatHoldService(seatOccupancyService, meterRegistry, 10, 6, 2, 12, () -> now[0]);
+    }
+
+    @Test
+    void heldSeatsCountAsOccupiedUntilTheHoldExpires() {
+        seatHoldService.hold(null, "ip:10.0.0.1", TRIP, DATE, List.of("1", "2"), 0, 3);
+        assertThat(available(0, 3)).isEqualTo(CAPACITY - 2);
+        assertThat(available(3, 5)).isEqualTo(CAPACITY);
+        assertThatThrownBy(() -> seatOccupancyService.claimSeats(TRIP, DATE, List.of("2"), 2, 4))
+                .isInstanceOf(BadRequestException.class);
+
+        now[0] += 9 * 60_000L;
+        seatHoldService.expireHolds();
+        assertThat(available(0, 3)).isEqualTo(CAPACITY - 2);
+
+        now[0] += 60_000L;
+        seatHoldService.expireHolds();
+        assertThat(available(0, 3)).isEqualTo(CAPACITY);
+        assertThat(meterRegistry.counter("booking.holds.expired").count()).isEqualTo(1);
+    }
+
+    @Test
+    void convertedHoldKeepsItsSeatsAndNeverExpires() {
+        SeatHoldService.SeatHold hold = seatHoldService.hold("a@example.com", "a@example.com", TRIP, DATE,
+                List.of("4"), 1, 2);
+
+        seatHoldService.convert(hold.holdId(), "a@example.com", TRIP, DATE, List.of("4"), 1, 2);
+
+        now[0] += 60 * 60_000L;
+        seatHoldService.expireHolds();
+        assertThat(available(1, 2)).isEqualTo(CAPACITY - 1);
+        assertThat(meterRegistry.counter("booking.holds.expired").count()).isZero();
+        assertThatThrownBy(() -> seatHoldService.convert(hold.holdId(), "a@example.com", TRIP, DATE,
+                List.of("4"), 1, 2)).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void holdCannotBeConvertedAfterItsTtlEvenBeforeTheWheelTicks() {
+        SeatHoldService.SeatHold hold = seatHoldService.hold(null, "ip:10.0.0.1", TRIP, DATE, List.of("5"), 0, 1);
+
+        now[0] += 10 * 60_000L;
+        assertThatThrownBy(() -> seatHoldService.convert(hold.holdId(), null, TRIP, DATE, List.of("5"), 0, 1))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void holdOnlyConvertsIntoTheBookingItWasTakenFor() {
+        SeatHoldService.SeatHold hold = seatHoldService.hold("a@example.com", "a@example.com", TRIP, DATE,
+                List.of("6", "7"), 0, 2);
+
+        assertThatThrownBy(() -> seatHoldService.convert(hold.holdId(), "b@example.com", TRIP, DATE,
+                List.of("6", "7"), 0, 2)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> seatHoldService.convert(hold.holdId(), "a@example.com", TRIP, DATE,
+                List.of("6"), 0, 2)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> seatHoldService.convert(hold.holdId(), "a@example.com", TRIP, DATE,
+                List.of("6", "7"), 0, 3)).isInstanceOf(BadRequestException.class);
+
+        // Still held after the rejected attempts
+        seatHoldService.convert(hold.holdId(), "a@example.com", TRIP, DATE, List.of("7", "6"), 0, 2);
+    }
+
+    @Test
+    void releaseFreesTheSeatsOnlyForTheOwner() {
+        SeatHoldService.SeatHold hold = seatHoldService.hold("a@example.com", "a@example.com", TRIP, DATE,
+                List.of("8"), 0, 4);
+
+        assertThatThrownBy(() -> seatHoldService.release(hold.holdId(), "b@example.com"))
+                .isInstanceOf(NotFoundException.class);
+        assertThat(available(0, 4)).isEqualTo(CAPACITY - 1);
+
+        seatHoldService.release(hold.holdId(), "a@example.com");
+        assertThat(available(0, 4)).isEqualTo(CAPACITY);
+        assertThatThrownBy(() -> seatHoldService.release(hold.holdId(), "a@example.com"))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void rejectsHoldsOverTheSeatLimit() {
+        assertThatThrownBy(() -> seatHoldService.hold(null, "ip:10.0.0.1", TRIP, DATE,
+                List.of("1", "2", "3", "4", "5", "6", "7"), 0, 1))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(available(0, 1)).isEqualTo(CAPACITY);
+    }
+
+    @Test
+    void holdOnlyConvertsIntoExactlyItsSeats() {
+        SeatHoldService.SeatHold hold = seatHoldService.hold(null, "ip:10.0.0.1", TRIP, DATE, List.of("1", "2"), 0, 2);
+
+        assertThatThrownBy(() -> seatHoldService.convert(hold.holdId(), null, TRIP, DATE, List.of("1", "1"), 0, 2))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> seatHoldService.hold(null, "ip:10.0.0.2", TRIP, DATE, List.of("3", "3"), 0, 2))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(available(0, 2)).isEqualTo(CAPACITY - 2);
+    }
+
+    @Test
+    void holdsAreCappedPerClientAndPerTrip() {
+        seatHoldService.hold(null, "ip:10.0.0.1", TRIP, DATE, List.of("1"), 0, 1);
+        SeatHoldService.SeatHold second = seatHoldService.hold(null, "ip:10.0.0.1", TRIP, DATE, List.of("2"), 0, 1);
+        assertThatThrownBy(() -> seatHoldService.hold(null, "ip:10.0.0.1", TRIP, DATE, List.of("3"), 0, 1))
+                .isInstanceOf(TooManyRequestsException.class);
+
+        // Releasing a hold gives the client its slot back
+        seatHoldService.release(second.holdId(), null);
+        seatHoldService.hold(null, "ip:10.0.0.1", TRIP, DATE, List.of("3"), 0, 1);
+
+        // 2 seats held so far; 12 per trip in total, whoever holds them
+        seatHoldService.hold(null, "ip:10.0.0.2", TRIP, DATE, List.of("4", "5", "6", "7", "8", "9"), 0, 1);
+        assertThatThrownBy(() -> seatHoldService.hold(null, "ip:10.0.0.3", TRIP, DATE,
+                List.of("10", "11", "12", "13", "14"), 0, 1))
+                .isInstanceOf(TooManyRequestsException.class);
+        seatHoldService.hold(null, "ip:10.0.0.3", TRIP, DATE, List.of("10", "11", "12", "13"), 0, 1);
+        assertThat(seatOccupancyService.get(TRIP, DATE).countOccupied(0, 1)).isEqualTo(12);
+    }
+
+    @Test
+    void tripTakenOutOfServiceLosesItsHolds() {
+        SeatHoldService.SeatHold hold = seatHoldService.hold(null, "ip:10.0.0.1", TRIP, DATE, List.of("1"), 0, 2);
+        SeatHoldService.SeatHold otherTrip = seatHoldService.hold(null, "ip:10.0.0.1", 2L, DATE, List.of("1"), 0, 2);
+
+        seatHoldService.releaseTrips(List.of(TRIP), DATE);
+
+        assertThat(available(0, 2)).isEqualTo(CAPACITY);
+        assertThatThrownBy(() -> seatHoldService.convert(hold.holdId(), null, TRIP, DATE, List.of("1"), 0, 2))
+                .isInstanceOf(BadRequestException.class);
+        seatHoldService.convert(otherTrip.holdId(), null, 2L, DATE, List.of("1"), 0, 2);
+    }
+
+    @Test
+    void rebuildingTheOccupancyKeepsClaimsTheBookingsTableCannotShow() {
+        SeatHoldService.SeatHold hold = seatHoldService.hold(null, "ip:10.0.0.1", TRIP, DATE, List.of("1", "2"), 0, 3);
+
+        seatOccupancyService.evict(List.of(TRIP), DATE);
+        assertThat(available(0, 3)).isEqualTo(CAPACITY - 2);
+        assertThatThrownBy(() -> seatOccupancyService.claimSeats(TRIP, DATE, List.of("1"), 1, 2))
+                .isInstanceOf(BadRequestException.class);
+
+        seatHoldService.release(hold.holdId(), null);
+        seatOccupancyService.evict(List.of(TRIP), DATE);
+        assertThat(available(0, 3)).isEqualTo(CAPACITY);
+    }
+
+    private int available(int fromSeq, int toSeq) {
+        return seatOccupancyService.availableSeats(TRIP, DATE, CAPACITY, fromSeq, toSeq);
+    }
+}